@@ -0,0 +1,35 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import org.openjdk.jmh.infra.Blackhole;
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Task, which burns CPU for a fixed amount of work, like {@code BurningTestTask} of unit tests.
+ */
+final class BurnTask implements Task {
+    private final List<Task> dependencies;
+    private final long tokens;
+
+    BurnTask(List<Task> dependencies, long tokens) {
+        this.dependencies = dependencies;
+        this.tokens = tokens;
+    }
+
+    @Override
+    public void execute() {
+        Blackhole.consumeCPU(tokens);
+    }
+
+    @Override
+    public long cost() {
+        return tokens;
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutionException;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutor;
+import ru.ifmo.jbinternship.taskplanner.TaskGraph;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of 1M-node graphs of empty tasks before and after {@link TaskGraph#coarsen(long)}.
+ * Score is in tasks per second, {@code maxClusterCost = 0} means no coarsening.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(CoarseningBenchmark.SIZE)
+@State(Scope.Benchmark)
+public class CoarseningBenchmark {
+    static final int SIZE = 1_000_000;
+
+    @Param({"INDEPENDENT", "CHAIN", "SPARSE_DAG"})
+    private Graphs.Shape shape;
+
+    @Param({"0", "16", "256"})
+    private long maxClusterCost;
+
+    @Param({"4"})
+    private int threads;
+
+    private TaskGraph graph;
+    private TaskExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws TaskExecutionException {
+        graph = TaskGraph.compile(Graphs.generate(shape, SIZE));
+        if (maxClusterCost > 0) {
+            graph = graph.coarsen(maxClusterCost);
+        }
+        executor = new TaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public void execute() throws TaskExecutionException {
+        executor.execute(graph, threads);
+    }
+}
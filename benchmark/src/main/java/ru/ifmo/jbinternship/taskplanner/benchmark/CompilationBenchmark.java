@@ -0,0 +1,69 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.jbinternship.taskplanner.Task;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutionException;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutor;
+import ru.ifmo.jbinternship.taskplanner.TaskGraph;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prologue of a run apart from the run itself, for graphs of empty tasks. {@code compile} is the time before
+ * the first task may start: duplicate check, resolution and reversal of dependencies, and topological sort.
+ * {@code execute} runs the same graph compiled in advance, {@code compileAndExecute} compiles it on every run,
+ * as {@link TaskExecutor#execute(java.util.Collection, int)} does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class CompilationBenchmark {
+    @Param({"INDEPENDENT", "CHAIN", "SPARSE_DAG"})
+    private Graphs.Shape shape;
+
+    @Param({"1000000", "10000000"})
+    private int size;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private List<Task> tasks;
+    private TaskGraph graph;
+    private ExecutorService pool;
+    private TaskExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws TaskExecutionException {
+        tasks = Graphs.generate(shape, size);
+        pool = Executors.newFixedThreadPool(threads);
+        graph = TaskGraph.compile(tasks, pool, threads);
+        executor = new TaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public TaskGraph compile() throws TaskExecutionException {
+        return TaskGraph.compile(tasks, pool, threads);
+    }
+
+    @Benchmark
+    public void execute() throws TaskExecutionException {
+        executor.execute(graph, threads);
+    }
+
+    @Benchmark
+    public void compileAndExecute() throws TaskExecutionException {
+        executor.execute(tasks, threads);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Task without any work, measures pure scheduling overhead.
+ */
+final class EmptyTask implements Task {
+    private final List<Task> dependencies;
+
+    EmptyTask(List<Task> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    @Override
+    public void execute() {
+        // Nothing to do
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.jbinternship.taskplanner.SchedulingPolicy;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutionException;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutor;
+import ru.ifmo.jbinternship.taskplanner.TaskGraph;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Burning graphs of unit tests: binary tree and random DAGs of several sizes. Makespan of FIFO and critical path
+ * first scheduling differs most on the skewed DAG.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+    @Param({"BINARY_TREE", "RANDOM_DAG", "SKEWED_DAG"})
+    private Graphs.Shape shape;
+
+    @Param({"100", "1000", "5000"})
+    private int size;
+
+    @Param({"FIFO", "CRITICAL_PATH"})
+    private SchedulingPolicy scheduling;
+
+    @Param({"4"})
+    private int threads;
+
+    @Param({"false", "true"})
+    private boolean inline;
+
+    private TaskGraph graph;
+    private TaskExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws TaskExecutionException {
+        graph = TaskGraph.compile(Graphs.generate(shape, size));
+        executor = TaskExecutor.builder().scheduling(scheduling).inlineContinuation(inline).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public void execute() throws TaskExecutionException {
+        executor.execute(graph, threads);
+    }
+}
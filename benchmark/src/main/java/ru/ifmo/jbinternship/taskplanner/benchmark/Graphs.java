@@ -0,0 +1,164 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generators of benchmark graphs. Shapes follow the ones of {@code TaskExecutorTest}.
+ */
+final class Graphs {
+    // Fixed seed, so that every fork measures the same graph
+    private static final long SEED = 42;
+    private static final long BURN_TOKENS = 1000;
+
+    private Graphs() {
+    }
+
+    /**
+     * Graph shapes.
+     */
+    enum Shape {
+        /**
+         * Independent empty tasks.
+         */
+        INDEPENDENT,
+        /**
+         * Chain of empty tasks, each depending on the previous one.
+         */
+        CHAIN,
+        /**
+         * Root, then empty tasks depending on it, then one task depending on all of them.
+         */
+        FAN_OUT_IN,
+        /**
+         * Binary tree of burning tasks, reduced from leaves to the root, like {@code prepareWarmup}.
+         */
+        BINARY_TREE,
+        /**
+         * Random DAG of burning and empty tasks, like {@code generateDAG}.
+         */
+        RANDOM_DAG,
+        /**
+         * Sparse random DAG of burning tasks with skewed costs: every tenth task burns twenty times longer.
+         * Cost hints tell them apart, so critical-path-first scheduling shortens the makespan.
+         */
+        SKEWED_DAG,
+        /**
+         * Sparse random DAG of empty tasks: mostly chains and fan-outs, every task depends on
+         * at most one recent task.
+         */
+        SPARSE_DAG
+    }
+
+    static List<Task> generate(Shape shape, int size) {
+        switch (shape) {
+            case INDEPENDENT:
+                return independent(size);
+            case CHAIN:
+                return chain(size);
+            case FAN_OUT_IN:
+                return fanOutIn(size);
+            case BINARY_TREE:
+                return binaryTree(size);
+            case RANDOM_DAG:
+                return randomDAG(size);
+            case SKEWED_DAG:
+                return skewedDAG(size);
+            case SPARSE_DAG:
+                return sparseDAG(size);
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    private static List<Task> independent(int size) {
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(new EmptyTask(List.of()));
+        }
+        return tasks;
+    }
+
+    private static List<Task> chain(int size) {
+        List<Task> tasks = new ArrayList<>(size);
+        tasks.add(new EmptyTask(List.of()));
+        for (int i = 1; i < size; i++) {
+            tasks.add(new EmptyTask(List.of(tasks.get(i - 1))));
+        }
+        return tasks;
+    }
+
+    private static List<Task> fanOutIn(int size) {
+        List<Task> tasks = new ArrayList<>(size);
+        Task root = new EmptyTask(List.of());
+        tasks.add(root);
+        for (int i = 2; i < size; i++) {
+            tasks.add(new EmptyTask(List.of(root)));
+        }
+        tasks.add(new EmptyTask(new ArrayList<>(tasks.subList(1, tasks.size()))));
+        return tasks;
+    }
+
+    // Size is rounded down to a power of two
+    private static List<Task> binaryTree(int size) {
+        int leaves = Integer.highestOneBit(size) / 2;
+        List<Task> tasks = new ArrayList<>(Collections.nCopies(2 * leaves, null));
+        for (int i = 0; i < leaves; i++) {
+            tasks.set(leaves + i, new EmptyTask(List.of()));
+        }
+        for (int i = leaves - 1; i >= 1; i--) {
+            tasks.set(i, new BurnTask(List.of(tasks.get(2 * i), tasks.get(2 * i + 1)), BURN_TOKENS));
+        }
+        tasks.set(0, new EmptyTask(List.of()));
+        return tasks;
+    }
+
+    private static List<Task> randomDAG(int size) {
+        final double edgeProbability = 0.35;
+        final double burningProbability = 0.8;
+        Random rng = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            List<Task> dependencies = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                if (rng.nextDouble() <= edgeProbability) {
+                    dependencies.add(tasks.get(j));
+                }
+            }
+            tasks.add(rng.nextDouble() <= burningProbability
+                    ? new BurnTask(dependencies, BURN_TOKENS)
+                    : new EmptyTask(dependencies));
+        }
+        return tasks;
+    }
+
+    private static List<Task> skewedDAG(int size) {
+        final double edgeProbability = 0.03;
+        Random rng = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            List<Task> dependencies = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                if (rng.nextDouble() < edgeProbability) {
+                    dependencies.add(tasks.get(j));
+                }
+            }
+            tasks.add(new BurnTask(dependencies, rng.nextInt(10) == 0 ? 20 * BURN_TOKENS : BURN_TOKENS));
+        }
+        return tasks;
+    }
+
+    private static List<Task> sparseDAG(int size) {
+        Random rng = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(new EmptyTask(i == 0 || rng.nextInt(100) == 0 ? List.of()
+                    : List.of(tasks.get(Math.max(0, i - 1 - rng.nextInt(1000))))));
+        }
+        return tasks;
+    }
+}
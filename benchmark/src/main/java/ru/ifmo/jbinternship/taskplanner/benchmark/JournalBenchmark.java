@@ -0,0 +1,108 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.jbinternship.taskplanner.CompletionJournal;
+import ru.ifmo.jbinternship.taskplanner.Task;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutionException;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutor;
+import ru.ifmo.jbinternship.taskplanner.TaskGraph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a random DAG of empty tasks with and without a {@link CompletionJournal}, which commits
+ * completions in groups in the background. Score is in tasks per second, including the final sync.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(JournalBenchmark.SIZE)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+    static final int SIZE = 200_000;
+    // Fixed seed, so that every fork measures the same graph
+    private static final long SEED = 1;
+
+    @Param({"false", "true"})
+    private boolean journaled;
+
+    @Param({"4"})
+    private int threads;
+
+    private TaskGraph graph;
+    private TaskExecutor executor;
+    private Path file;
+    private CompletionJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws TaskExecutionException, IOException {
+        Random rng = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            tasks.add(new NumberedTask(i, i == 0 ? List.of() : List.of(tasks.get(rng.nextInt(i)))));
+        }
+        graph = TaskGraph.compile(tasks);
+        executor = new TaskExecutor();
+        file = Files.createTempFile("taskplanner", ".journal");
+        journal = CompletionJournal.open(file);
+    }
+
+    // Every run starts with an empty journal, otherwise it would skip all tasks
+    @Setup(Level.Invocation)
+    public void clearJournal() throws IOException {
+        journal.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.close();
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void execute() throws TaskExecutionException {
+        if (journaled) {
+            executor.execute(graph, threads, journal);
+        } else {
+            executor.execute(graph, threads);
+        }
+    }
+
+    /**
+     * Empty task with a stable id, as journaled tasks must have.
+     */
+    private static final class NumberedTask implements Task {
+        private final String id;
+        private final List<Task> dependencies;
+
+        NumberedTask(int number, List<Task> dependencies) {
+            this.id = Integer.toString(number);
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public void execute() {
+            // Nothing to do
+        }
+
+        @Override
+        public Collection<Task> dependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public String id() {
+            return id;
+        }
+    }
+}
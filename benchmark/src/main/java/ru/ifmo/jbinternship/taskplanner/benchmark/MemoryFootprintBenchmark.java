@@ -0,0 +1,58 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.jbinternship.taskplanner.Task;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutionException;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutor;
+import ru.ifmo.jbinternship.taskplanner.TaskGraph;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory taken by graphs of 10M empty tasks. Score of interest is {@code gc.alloc.rate.norm} of the GC profiler,
+ * which is bytes allocated per task: by compilation for {@code compile}, and by the run of a compiled graph
+ * for {@code execute}. Retained memory of the compiled graph and of the run state is bounded by these numbers.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@OperationsPerInvocation(MemoryFootprintBenchmark.SIZE)
+@State(Scope.Benchmark)
+public class MemoryFootprintBenchmark {
+    static final int SIZE = 10_000_000;
+
+    @Param({"INDEPENDENT", "CHAIN", "SPARSE_DAG"})
+    private Graphs.Shape shape;
+
+    @Param({"4"})
+    private int threads;
+
+    private List<Task> tasks;
+    private TaskGraph graph;
+    private TaskExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws TaskExecutionException {
+        tasks = Graphs.generate(shape, SIZE);
+        graph = TaskGraph.compile(tasks);
+        executor = new TaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public TaskGraph compile() throws TaskExecutionException {
+        return TaskGraph.compile(tasks);
+    }
+
+    @Benchmark
+    public void execute() throws TaskExecutionException {
+        executor.execute(graph, threads);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.jbinternship.taskplanner.ExecutionEngine;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutionException;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutor;
+import ru.ifmo.jbinternship.taskplanner.TaskGraph;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-count scaling of both engines on empty tasks and on a burning random DAG.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScalingBenchmark {
+    @Param({"INDEPENDENT", "RANDOM_DAG"})
+    private Graphs.Shape shape;
+
+    @Param({"1", "2", "4", "8", "16"})
+    private int threads;
+
+    @Param({"SHARED_QUEUE", "WORK_STEALING"})
+    private ExecutionEngine engine;
+
+    private TaskGraph graph;
+    private TaskExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws TaskExecutionException {
+        int size = shape == Graphs.Shape.INDEPENDENT ? 100_000 : 2000;
+        graph = TaskGraph.compile(Graphs.generate(shape, size));
+        // Pool of the run's size, so that work stealing runs without limits of a larger pool
+        executor = TaskExecutor.builder().engine(engine).threads(threads).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public void execute() throws TaskExecutionException {
+        executor.execute(graph, threads);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.ifmo.jbinternship.taskplanner.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ifmo.jbinternship.taskplanner.ExecutionEngine;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutionException;
+import ru.ifmo.jbinternship.taskplanner.TaskExecutor;
+import ru.ifmo.jbinternship.taskplanner.TaskGraph;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pure scheduling overhead: empty tasks in different shapes. Divide score by {@code size} to get time per task.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SchedulerOverheadBenchmark {
+    @Param({"INDEPENDENT", "CHAIN", "FAN_OUT_IN"})
+    private Graphs.Shape shape;
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"SHARED_QUEUE", "WORK_STEALING"})
+    private ExecutionEngine engine;
+
+    @Param({"4"})
+    private int threads;
+
+    @Param({"false", "true"})
+    private boolean inline;
+
+    private TaskGraph graph;
+    private TaskExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws TaskExecutionException {
+        graph = TaskGraph.compile(Graphs.generate(shape, size));
+        executor = TaskExecutor.builder().engine(engine).threads(threads).inlineContinuation(inline).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public void execute() throws TaskExecutionException {
+        executor.execute(graph, threads);
+    }
+
+    @Benchmark
+    public void compileAndExecute() throws TaskExecutionException {
+        executor.execute(TaskGraph.compile(Graphs.generate(shape, size)), threads);
+    }
+
+    // Pool per call, as execute used to do before executors kept their pools
+    @Benchmark
+    public void executeOnFreshExecutor() throws TaskExecutionException {
+        try (TaskExecutor fresh = TaskExecutor.builder().engine(engine).threads(threads).inlineContinuation(inline)
+                .build()) {
+            fresh.execute(graph, threads);
+        }
+    }
+}
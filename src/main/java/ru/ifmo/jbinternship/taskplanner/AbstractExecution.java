@@ -0,0 +1,466 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Single run of tasks, as seen through {@link ExecutionHandle}.
+ * <p>
+ * Counts outstanding tasks, collects failures and completes the run. Subclasses decide how tasks
+ * are stored and how ready tasks reach working threads, tasks are referred to by ids given by subclasses.
+ * <p>
+ * Attempt of a task with a timeout is watched by the executor's timer. Whoever finishes the attempt first,
+ * the worker or the timer, handles its outcome, the other one leaves it alone. Failed attempt is retried
+ * by queueing the task again when its backoff expires, so no thread waits for it meanwhile.
+ */
+abstract class AbstractExecution {
+    final ExecutionOptions options;
+
+    // Number of tasks which are ready or running. Run is finished when it drops to zero.
+    final AtomicInteger outstanding = new AtomicInteger();
+    final LongAdder startedTasks = new LongAdder();
+    final LongAdder finishedTasks = new LongAdder();
+    final LongAdder failedTasks = new LongAdder();
+    final LongAdder retriedTasks = new LongAdder();
+    final LongAdder timedOutTasks = new LongAdder();
+    volatile boolean cancelled;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    // Threads of workers, which may be interrupted on failure. Guarded by itself, so that a worker entering
+    // during the interrupt sweep either is interrupted or sees the run cancelled.
+    private final Set<Thread> workerThreads = new HashSet<>();
+    // Number of failed attempts of tasks, which failed at least once
+    private final Map<Integer, Integer> failedAttempts = new ConcurrentHashMap<>();
+
+    // Attempt of a task with a timeout
+    private static final class Watch {
+        final Thread thread = Thread.currentThread();
+        ScheduledFuture<?> timeout;
+        // Guarded by this
+        boolean finished;
+    }
+
+    AbstractExecution(ExecutionOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Returns the task with given id.
+     */
+    abstract Task task(int id);
+
+    /**
+     * Returns amounts of limited resources needed by the task, or {@code null} if it needs none.
+     */
+    abstract long[] demand(int id);
+
+    /**
+     * Returns cache entry key of the task, or {@code null} if its result is not cached.
+     */
+    abstract String cacheKey(int id);
+
+    /**
+     * Returns results of dependencies of the task.
+     */
+    abstract Inputs inputs(int id);
+
+    /**
+     * Marks the task completed with given result, or {@code null}, and releases its successors.
+     *
+     * @return successor to be run inline by the same worker, or {@code -1}
+     */
+    abstract int complete(int id, Object result);
+
+    /**
+     * Marks the task failed. Its successors are never released.
+     */
+    abstract void markFailed(int id);
+
+    /**
+     * Hands task, which acquired its resources while waiting for them, to working threads.
+     * Such task must be run by {@link #runAcquired(int)}.
+     */
+    abstract void resume(int id);
+
+    /**
+     * Hands task to working threads again, after its failed attempt. Called on the timer thread.
+     */
+    abstract void redispatch(int id);
+
+    /**
+     * Returns number of tasks, which were not started yet.
+     */
+    abstract int pendingCount();
+
+    /**
+     * Returns ids of tasks, which were neither completed nor failed.
+     */
+    abstract List<String> unfinishedTaskIds();
+
+    /**
+     * Returns result of the task, if it was not released yet.
+     *
+     * @throws IllegalArgumentException if task does not belong to the run
+     */
+    abstract Object result(Task task);
+
+    /**
+     * Returns number of working threads of the run.
+     */
+    abstract int parallelism();
+
+    /**
+     * Estimates work left in the run.
+     *
+     * @param remaining predicted time left for a task, which is not finished yet
+     * @return length of the longest chain of unfinished tasks and their total time. Dependents of failed tasks,
+     * which will never run, are not counted.
+     */
+    abstract long[] remainingWork(ToLongFunction<Task> remaining);
+
+    /**
+     * Estimates time left until the end of the run: the longest chain of unfinished tasks, unless there is
+     * more work than working threads can do meanwhile.
+     *
+     * @param remaining predicted time left for a task, which is not finished yet
+     */
+    long remainingNanos(ToLongFunction<Task> remaining) {
+        if (completion.isDone()) {
+            return 0;
+        }
+        long[] work = remainingWork(remaining);
+        return Math.max(work[0], work[1] / Math.max(1, parallelism()));
+    }
+
+    /**
+     * Returns future, which is completed when run is finished. On failure it is completed
+     * with {@link TaskExecutionException}.
+     */
+    CompletableFuture<Void> completion() {
+        return completion;
+    }
+
+    /**
+     * Stops scheduling new tasks and completes the run with {@link java.util.concurrent.CancellationException}.
+     *
+     * @return {@code false} if run was already finished
+     */
+    boolean cancel() {
+        cancelled = true;
+        return completion.cancel(false);
+    }
+
+    int completedCount() {
+        return (int) (finishedTasks.sum() - failedTasks.sum());
+    }
+
+    int runningCount() {
+        // Finished tasks are read first, so that result is never negative.
+        long finished = finishedTasks.sum();
+        return (int) (startedTasks.sum() - finished);
+    }
+
+    void finish() {
+        if (completion.isDone()) {
+            return;
+        }
+        TaskExecutionException failure = failure();
+        if (failure == null) {
+            completion.complete(null);
+        } else {
+            completion.completeExceptionally(failure);
+        }
+    }
+
+    // Returns exception describing all failures of the run, or null if there were none.
+    private TaskExecutionException failure() {
+        Iterator<Throwable> iterator = failures.iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        TaskExecutionException result = new TaskExecutionException("Parallel processing failed",
+                iterator.next(), unfinishedTaskIds());
+        while (iterator.hasNext()) {
+            result.addSuppressed(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * Stops the run because tasks can not be handed to working threads anymore.
+     */
+    void abort(Throwable e) {
+        failures.add(e);
+        cancelled = true;
+        finish();
+    }
+
+    /**
+     * Records failure of a task, stopping the run if failure policy says so.
+     */
+    void fail(Throwable e) {
+        failures.add(e);
+        if (options.failurePolicy == FailurePolicy.FAIL_FAST && !cancelled) {
+            cancelled = true;
+            if (options.interruptOnFailure) {
+                synchronized (workerThreads) {
+                    for (final Thread thread : workerThreads) {
+                        thread.interrupt();
+                    }
+                }
+            }
+            finish();
+        }
+    }
+
+    void enterWorker() {
+        if (options.interruptOnFailure) {
+            synchronized (workerThreads) {
+                workerThreads.add(Thread.currentThread());
+            }
+        }
+    }
+
+    void leaveWorker() {
+        if (options.interruptOnFailure) {
+            synchronized (workerThreads) {
+                workerThreads.remove(Thread.currentThread());
+            }
+            // Pool thread must not carry interruption to other runs.
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Notifies listener, if there is one, that task is ready.
+     */
+    void ready(Task task) {
+        if (options.listener != null) {
+            options.listener.taskReady(task, System.nanoTime());
+        }
+    }
+
+    /**
+     * Acquires resources of the task, runs it and releases its successors. If resources are not available,
+     * task waits for them without holding the worker, and is {@link #resume(int) resumed} later.
+     *
+     * @return successor to be run inline by the same worker, or {@code -1}
+     */
+    int run(int current) {
+        long[] demand = demand(current);
+        if (demand != null && !options.resources.acquire(demand, () -> resume(current))) {
+            return -1;
+        }
+        return runAcquired(current);
+    }
+
+    /**
+     * Runs the task, which holds its resources, and releases its successors.
+     *
+     * @return successor to be run inline by the same worker, or {@code -1}
+     */
+    int runAcquired(int current) {
+        int next = -1;
+        boolean retire = true;
+        try {
+            if (!cancelled) {
+                startedTasks.increment();
+                Task task = task(current);
+                ExecutionListener listener = options.listener;
+                if (listener != null) {
+                    listener.taskStarted(task, Thread.currentThread().threadId(), System.nanoTime());
+                }
+                Duration timeout = task.timeout();
+                Watch watch = timeout != null ? watch(current, timeout) : null;
+                Object result = null;
+                Throwable failure = null;
+                try {
+                    result = execute(task, current);
+                } catch (Throwable e) {
+                    failure = e;
+                }
+                if (watch != null && !finish(watch)) {
+                    // Timer has already handled this attempt
+                    retire = false;
+                    return -1;
+                }
+                finishedTasks.increment();
+                if (listener != null) {
+                    listener.taskFinished(task, Thread.currentThread().threadId(), System.nanoTime(), failure);
+                }
+                if (failure != null) {
+                    retire = !retry(current, failure);
+                    return -1;
+                }
+                next = complete(current, result);
+            }
+        } catch (Throwable e) {
+            failed(current, e);
+        } finally {
+            if (retire) {
+                retire(current);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Executes the task.
+     *
+     * @return result of a result task, or {@code null}
+     */
+    Object execute(Task task, int current) {
+        if (task instanceof ResultTask) {
+            return compute((ResultTask<?>) task, current);
+        }
+        task.execute();
+        return null;
+    }
+
+    private Object compute(ResultTask<?> task, int current) {
+        String key = cacheKey(current);
+        Object result = key != null ? options.cache.get(key) : null;
+        if (result == null) {
+            result = task.compute(inputs(current));
+            if (key != null && result != null) {
+                options.cache.put(key, (Serializable) result);
+            }
+        }
+        return result;
+    }
+
+    private Watch watch(int current, Duration timeout) {
+        Watch watch = new Watch();
+        watch.timeout = options.timer.schedule(() -> timedOut(current, watch, timeout), timeout.toNanos());
+        return watch;
+    }
+
+    // Finishes the attempt on the worker. Returns false if timer has finished it already.
+    private static boolean finish(Watch watch) {
+        synchronized (watch) {
+            if (watch.finished) {
+                // Interruption by the timer must not affect next tasks of the worker
+                Thread.interrupted();
+                return false;
+            }
+            watch.finished = true;
+        }
+        watch.timeout.cancel(false);
+        return true;
+    }
+
+    private void timedOut(int current, Watch watch, Duration timeout) {
+        synchronized (watch) {
+            if (watch.finished) {
+                return;
+            }
+            watch.finished = true;
+            watch.thread.interrupt();
+        }
+        timedOutTasks.increment();
+        finishedTasks.increment();
+        Task task = task(current);
+        TaskTimeoutException failure = new TaskTimeoutException(task.id(), timeout);
+        if (options.listener != null) {
+            options.listener.taskFinished(task, watch.thread.threadId(), System.nanoTime(), failure);
+        }
+        try {
+            if (retry(current, failure)) {
+                return;
+            }
+        } catch (Throwable e) {
+            failed(current, e);
+        }
+        retire(current);
+    }
+
+    /**
+     * Schedules another attempt of the failed task, if its retry policy allows, otherwise marks it failed.
+     *
+     * @return whether task is going to be retried
+     */
+    private boolean retry(int current, Throwable failure) {
+        RetryPolicy policy = task(current).retryPolicy();
+        int failures = failedAttempts.merge(current, 1, Integer::sum);
+        if (cancelled || failures > policy.maxRetries() || options.timer == null) {
+            failed(current, failure);
+            return false;
+        }
+        options.timer.schedule(() -> {
+            if (cancelled) {
+                // Resources are released already
+                if (outstanding.decrementAndGet() == 0) {
+                    finish();
+                }
+            } else {
+                redispatch(current);
+            }
+        }, () -> dropRetry(current, failure), policy.backoff(failures).toNanos());
+        retriedTasks.increment();
+        // Attempt is not counted, so that counters describe tasks
+        startedTasks.decrement();
+        finishedTasks.decrement();
+        long[] demand = demand(current);
+        if (demand != null) {
+            options.resources.release(demand);
+        }
+        return true;
+    }
+
+    // Fails the task, whose retry was dropped by closing of the executor. Its resources are released already.
+    private void dropRetry(int current, Throwable failure) {
+        // Last attempt is counted again, as the task is not retried
+        retriedTasks.decrement();
+        startedTasks.increment();
+        finishedTasks.increment();
+        failed(current, new TaskExecutionException("Executor was closed before retry of task "
+                + task(current).id(), failure));
+        if (outstanding.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    /**
+     * Marks the task failed and records the failure.
+     */
+    void failed(int current, Throwable e) {
+        markFailed(current);
+        failedTasks.increment();
+        fail(e);
+    }
+
+    /**
+     * Ends processing of the task, which was ready, whatever the outcome is.
+     */
+    void retire(int current) {
+        long[] demand = demand(current);
+        if (demand != null) {
+            options.resources.release(demand);
+        }
+        if (outstanding.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    /**
+     * Runs the task and all successors it continues with.
+     */
+    void runChain(int task) {
+        while (task >= 0) {
+            task = run(task);
+        }
+    }
+}
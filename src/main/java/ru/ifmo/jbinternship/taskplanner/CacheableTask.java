@@ -0,0 +1,22 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.io.Serializable;
+
+/**
+ * Result task, whose result may be taken from a {@link ResultCache} instead of being computed.
+ * <p>
+ * Cache entry of a task is addressed by its own {@link #cacheKey()} together with keys of all of its
+ * dependencies, so a task is cached only if all of its dependencies are cacheable as well.
+ *
+ * @param <T> type of the result
+ * @author Daniil Boger
+ */
+public interface CacheableTask<T extends Serializable> extends ResultTask<T> {
+    /**
+     * Returns key, which is stable across runs and JVMs and changes whenever the task itself
+     * would compute a different result from the same inputs.
+     *
+     * @return cache key of the task
+     */
+    String cacheKey();
+}
@@ -0,0 +1,50 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tasks merged by {@link TaskGraph#coarsen(long)}, run one by one as a single unit.
+ * Cluster is serializable if its members are, so coarsened graphs can be run by {@link DistributedExecutor}.
+ */
+final class ClusterTask implements Task, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // In topological order
+    private final Task[] members;
+    private final long cost;
+    private List<Task> dependencies;
+
+    ClusterTask(Task[] members, long cost) {
+        this.members = members;
+        this.cost = cost;
+    }
+
+    void setDependencies(Task[] dependencies) {
+        this.dependencies = Arrays.asList(dependencies);
+    }
+
+    @Override
+    public void execute() {
+        for (final Task member : members) {
+            member.execute();
+        }
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public long cost() {
+        return cost;
+    }
+
+    @Override
+    public String id() {
+        return members[0].id() + " (+" + (members.length - 1) + ")";
+    }
+}
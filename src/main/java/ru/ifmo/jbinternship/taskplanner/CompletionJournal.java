@@ -0,0 +1,312 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of completed tasks, which lets a long run resume after the process dies.
+ * <p>
+ * Every task completed by a {@link TaskExecutor#execute(TaskGraph, int, CompletionJournal) journaled run}, or by
+ * a {@link TaskExecutor#submitDynamic(java.util.Collection, int, CompletionJournal) dynamic one}, is
+ * appended to a local file by its {@link Task#id() id}. Working threads only queue ids, while a background thread
+ * writes everything queued so far and syncs the file once per batch, so that under load many completions share
+ * one {@code fsync}. Next run of the same graph with the reopened journal considers journaled tasks done and
+ * executes only the rest.
+ * <p>
+ * Tasks must override {@link Task#id()} with ids, which are unique within the graph and stable between processes:
+ * default {@link Object#toString()} is neither, so graphs with such tasks are rejected. Results of journaled
+ * {@link ResultTask result tasks} are not kept, so such task is executed again, unless all of its dependents
+ * are done.
+ * <p>
+ * Record is the length of UTF-8 encoded id, the id and its CRC32. Record torn by a crash is dropped on open.
+ *
+ * @author Daniil Boger
+ */
+public final class CompletionJournal implements Closeable {
+    // Whether class of tasks overrides Task#id()
+    private static final ClassValue<Boolean> STABLE_IDS = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("id").getDeclaringClass() != Task.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError("Task must have id()", e);
+            }
+        }
+    };
+
+    private final FileChannel channel;
+    // Ids recovered when journal was opened
+    private final Set<String> completed;
+    private final Thread writer;
+    // Guards everything below
+    private final Object lock = new Object();
+    private List<String> queue = new ArrayList<>();
+    private long appended;
+    private long durable;
+    private IOException failure;
+    private boolean closed;
+    // Whether writer waits for new ids, otherwise it will take them after the current batch
+    private boolean idle;
+
+    private CompletionJournal(FileChannel channel, Set<String> completed) {
+        this.channel = channel;
+        this.completed = completed;
+        this.writer = new Thread(this::write, "taskplanner-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens journal file, creating it if needed, and recovers ids of completed tasks.
+     *
+     * @param file path of the journal
+     * @return opened journal
+     * @throws IOException if file can't be read or written
+     */
+    public static CompletionJournal open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            Set<String> completed = new HashSet<>();
+            long valid = recover(channel, completed);
+            if (valid < channel.size()) {
+                channel.truncate(valid);
+                channel.force(false);
+            }
+            channel.position(valid);
+            return new CompletionJournal(channel, completed);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Reads records until the end of file or the first broken one. Returns length of valid prefix.
+    private static long recover(FileChannel channel, Set<String> completed) throws IOException {
+        ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        CRC32 crc = new CRC32();
+        long valid = 0;
+        while (file.remaining() >= Integer.BYTES) {
+            int length = file.getInt();
+            if (length < 0 || file.remaining() < (long) length + Integer.BYTES) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            file.get(bytes);
+            crc.reset();
+            crc.update(bytes);
+            if (file.getInt() != (int) crc.getValue()) {
+                break;
+            }
+            completed.add(new String(bytes, StandardCharsets.UTF_8));
+            valid = file.position();
+        }
+        return valid;
+    }
+
+    /**
+     * Returns ids of tasks, which were journaled before the journal was opened.
+     *
+     * @return unmodifiable set of task ids
+     */
+    public Set<String> completed() {
+        return Collections.unmodifiableSet(completed);
+    }
+
+    /**
+     * Queues id of a completed task to be written. Never blocks on the file.
+     */
+    void append(String id) {
+        synchronized (lock) {
+            if (closed || failure != null) {
+                return;
+            }
+            queue.add(id);
+            appended++;
+            if (idle) {
+                idle = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until all ids queued so far are written and synced.
+     *
+     * @throws IOException if journal could not be written
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appended;
+            while (durable < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while syncing journal");
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Journal could not be written", failure);
+            }
+        }
+    }
+
+    /**
+     * Forgets all completed tasks, so that next run executes every task. Call it when the graph is done
+     * and its journal is not needed anymore.
+     *
+     * @throws IOException if journal could not be written
+     */
+    public void clear() throws IOException {
+        sync();
+        synchronized (lock) {
+            channel.truncate(0);
+            channel.force(false);
+            completed.clear();
+        }
+    }
+
+    /**
+     * Writes queued ids and closes the file.
+     *
+     * @throws IOException if journal could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Journal could not be written", failure);
+            }
+        }
+    }
+
+    // Group commit: every batch is whatever was queued while the previous one was being synced.
+    private void write() {
+        List<String> batch = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        CRC32 crc = new CRC32();
+        while (true) {
+            long target;
+            synchronized (lock) {
+                while (queue.isEmpty() && !closed) {
+                    idle = true;
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                List<String> swapped = queue;
+                queue = batch;
+                batch = swapped;
+                target = appended;
+            }
+            try {
+                buffer.reset();
+                for (final String id : batch) {
+                    byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+                    crc.reset();
+                    crc.update(bytes);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    out.writeInt((int) crc.getValue());
+                }
+                ByteBuffer data = ByteBuffer.wrap(buffer.toByteArray());
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            batch.clear();
+            synchronized (lock) {
+                durable = target;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns tasks of the graph, which are done according to the journal.
+     *
+     * @throws TaskExecutionException if some task does not override {@link Task#id()}, or ids are not unique
+     */
+    boolean[] replay(TaskGraph graph) throws TaskExecutionException {
+        final int n = graph.size();
+        Set<String> ids = new HashSet<>(n * 4 / 3 + 1);
+        boolean[] done = new boolean[n];
+        for (int id = 0; id < n; id++) {
+            Task task = graph.task(id);
+            String taskId = task.id();
+            if (!STABLE_IDS.get(task.getClass())) {
+                throw new TaskExecutionException("Tasks must override id() to be journaled: " + taskId);
+            }
+            if (!ids.add(taskId)) {
+                throw new TaskExecutionException("Task ids must be unique to be journaled: " + taskId);
+            }
+            done[id] = completed.contains(taskId);
+        }
+        // Result task is needed again by its dependents, which are not done. Dependents go first in reverse order.
+        int[] order = graph.order();
+        for (int k = n - 1; k >= 0; k--) {
+            int id = order[k];
+            if (done[id] && graph.task(id) instanceof ResultTask) {
+                for (int i = graph.successorsFrom(id), to = graph.successorsTo(id); i < to && done[id]; i++) {
+                    done[id] = done[graph.successor(i)];
+                }
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Returns whether task added to a dynamic run is done according to the journal. Dynamic tasks are executed
+     * again, so that tasks they add are known, and so are result tasks, as tasks added later may need results.
+     *
+     * @throws IllegalArgumentException if task does not override {@link Task#id()}
+     */
+    boolean replay(Task task) {
+        if (!STABLE_IDS.get(task.getClass())) {
+            throw new IllegalArgumentException("Tasks must override id() to be journaled: " + task.id());
+        }
+        return !(task instanceof DynamicTask) && !(task instanceof ResultTask) && completed.contains(task.id());
+    }
+}
@@ -0,0 +1,121 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Run of a compiled graph on worker processes of {@link DistributedExecutor}.
+ * <p>
+ * Dependency counters, task states and failures are kept by the coordinator exactly as in local runs.
+ * Graph is partitioned between workers, so that a task tends to go to the worker, which ran its dependency,
+ * while partitions stay balanced. Ready tasks are sent to the worker of their partition, or to the next
+ * alive one, and completions reported by workers release their successors.
+ */
+final class DistributedExecution extends Execution {
+    private final DistributedExecutor coordinator;
+    private final int run;
+    // Preferred worker of every task
+    private final int[] partitions;
+
+    DistributedExecution(TaskGraph graph, ExecutionOptions options, DistributedExecutor coordinator, int run,
+                         int workers) {
+        super(graph, options);
+        this.coordinator = coordinator;
+        this.run = run;
+        this.partitions = partition(graph, workers);
+    }
+
+    int run() {
+        return run;
+    }
+
+    // Task joins partition of its first dependency, which is not full yet, otherwise the smallest partition.
+    private static int[] partition(TaskGraph graph, int workers) {
+        int[] partitions = new int[graph.size()];
+        int[] sizes = new int[workers];
+        int limit = (graph.size() + workers - 1) / workers;
+        for (final int id : graph.order()) {
+            int partition = -1;
+            for (int i = graph.dependenciesFrom(id), to = graph.dependenciesTo(id); i < to; i++) {
+                int candidate = partitions[graph.dependency(i)];
+                if (sizes[candidate] < limit) {
+                    partition = candidate;
+                    break;
+                }
+            }
+            if (partition < 0) {
+                partition = 0;
+                for (int i = 1; i < workers; i++) {
+                    if (sizes[i] < sizes[partition]) {
+                        partition = i;
+                    }
+                }
+            }
+            partitions[id] = partition;
+            sizes[partition]++;
+        }
+        return partitions;
+    }
+
+    @Override
+    int parallelism() {
+        return coordinator.parallelism();
+    }
+
+    @Override
+    void dispatch(int id) {
+        if (cancelled) {
+            retire(id);
+            return;
+        }
+        coordinator.send(this, id, partitions[id]);
+    }
+
+    @Override
+    void dispatched() {
+        coordinator.flush();
+    }
+
+    @Override
+    void resume(int id) {
+        // Options have no resource pool, so no task ever waits for resources
+        throw new AssertionError("Resources are not limited in distributed runs");
+    }
+
+    /**
+     * Called when task is sent to a worker.
+     */
+    void started(int id, int worker) {
+        startedTasks.increment();
+        if (options.listener != null) {
+            options.listener.taskStarted(graph.task(id), worker, System.nanoTime());
+        }
+    }
+
+    /**
+     * Called when worker died before reporting the task.
+     */
+    void lost(int id) {
+        startedTasks.decrement();
+    }
+
+    /**
+     * Called when worker reports that task finished.
+     *
+     * @param failure exception thrown by the task, or {@code null}
+     */
+    void reported(int id, int worker, Throwable failure) {
+        finishedTasks.increment();
+        if (options.listener != null) {
+            options.listener.taskFinished(graph.task(id), worker, System.nanoTime(), failure);
+        }
+        try {
+            if (failure != null) {
+                failed(id, failure);
+            } else if (!cancelled) {
+                complete(id, null);
+            }
+        } catch (Throwable e) {
+            failed(id, e);
+        } finally {
+            retire(id);
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes dependency graphs on several worker JVMs, started on the local machine and connected over
+ * loopback sockets.
+ * <p>
+ * This process is the coordinator: it compiles and validates the graph, keeps dependency counters and sends
+ * ready tasks to {@link DistributedWorker workers}, which report completions back. Tasks must be
+ * {@link Serializable}, and their classes must be on the class path of workers, which is the class path of this
+ * JVM by default. Tasks are executed on copies, so they can not communicate through memory.
+ * <p>
+ * If a worker dies, tasks it had in flight are sent to other workers. Run fails only when no workers are left.
+ * {@link ResultTask Result tasks}, timeouts and retries of tasks are not supported, and resources are not limited.
+ *
+ * @author Daniil Boger
+ */
+public final class DistributedExecutor implements AutoCloseable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 60_000;
+
+    private final Worker[] workers;
+    private final int threadsPerWorker;
+    private final ExecutionOptions options;
+    private final Map<Integer, DistributedExecution> runs = new ConcurrentHashMap<>();
+    private final AtomicInteger runCounter = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Connection to a worker process.
+     */
+    private final class Worker {
+        final int index;
+        final Process process;
+        final Socket socket;
+        // Guarded by this
+        final ObjectOutputStream out;
+        final DataInputStream in;
+        // Tasks sent, but not reported yet, as run number and task number. Guarded by this.
+        final Set<Long> inFlight = new HashSet<>();
+        boolean alive = true;
+        boolean unflushed;
+
+        Worker(int index, Process process, Socket socket, DataInputStream in) throws IOException {
+            this.index = index;
+            this.process = process;
+            this.socket = socket;
+            this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.out.flush();
+            this.in = in;
+        }
+
+        // Returns false if worker is dead. Task is started only once it is sent, and before its report is read.
+        boolean send(DistributedExecution execution, int id) {
+            List<Long> lost;
+            synchronized (this) {
+                if (!alive) {
+                    return false;
+                }
+                try {
+                    out.writeObject(new DistributedWorker.Assignment(execution.run(), id, execution.graph.task(id)));
+                    inFlight.add(key(execution.run(), id));
+                    unflushed = true;
+                    execution.started(id, index);
+                    return true;
+                } catch (IOException e) {
+                    lost = die();
+                }
+            }
+            requeue(lost);
+            return false;
+        }
+
+        void flush() {
+            List<Long> lost;
+            synchronized (this) {
+                if (!alive || !unflushed) {
+                    return;
+                }
+                try {
+                    out.flush();
+                    unflushed = false;
+                    return;
+                } catch (IOException e) {
+                    lost = die();
+                }
+            }
+            requeue(lost);
+        }
+
+        // Forgets objects sent before, so that worker does not keep tasks of finished runs.
+        synchronized void reset() {
+            if (alive) {
+                try {
+                    out.reset();
+                    unflushed = true;
+                } catch (IOException e) {
+                    // Reader will notice dead worker
+                }
+            }
+        }
+
+        // Marks worker dead and returns tasks it had in flight. Must be called under the lock.
+        List<Long> die() {
+            alive = false;
+            List<Long> lost = new ArrayList<>(inFlight);
+            inFlight.clear();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+            process.destroyForcibly();
+            return lost;
+        }
+
+        // Reads reports until worker dies
+        void read() {
+            try {
+                while (true) {
+                    int run = in.readInt();
+                    int id = in.readInt();
+                    int length = in.readInt();
+                    Throwable failure = null;
+                    if (length >= 0) {
+                        byte[] bytes = new byte[length];
+                        in.readFully(bytes);
+                        failure = deserialize(bytes);
+                    }
+                    synchronized (this) {
+                        // Task is already sent elsewhere if worker was considered dead meanwhile
+                        if (!inFlight.remove(key(run, id))) {
+                            continue;
+                        }
+                    }
+                    DistributedExecution execution = runs.get(run);
+                    if (execution != null) {
+                        execution.reported(id, index, failure);
+                    }
+                }
+            } catch (IOException e) {
+                List<Long> lost;
+                synchronized (this) {
+                    lost = alive ? die() : Collections.emptyList();
+                }
+                requeue(lost);
+            }
+        }
+    }
+
+    private DistributedExecutor(Builder builder) throws IOException {
+        this.options = new ExecutionOptions(SchedulingPolicy.FIFO, false, builder.failurePolicy, false, null,
+                builder.listener, null, null, null);
+        this.threadsPerWorker = builder.threadsPerWorker;
+        this.workers = new Worker[builder.workers];
+        List<Process> processes = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, builder.workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            for (int i = 0; i < builder.workers; i++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(builder.jvmOptions);
+                command.add("-cp");
+                command.add(builder.classPath);
+                command.add(DistributedWorker.class.getName());
+                command.add(String.valueOf(server.getLocalPort()));
+                command.add(String.valueOf(i));
+                command.add(String.valueOf(builder.threadsPerWorker));
+                processes.add(new ProcessBuilder(command).inheritIO().start());
+            }
+            // Workers connect in any order and introduce themselves with their numbers
+            for (int i = 0; i < builder.workers; i++) {
+                Socket socket = server.accept();
+                sockets.add(socket);
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                int index = in.readInt();
+                if (index < 0 || index >= workers.length || workers[index] != null) {
+                    throw new IOException("Unexpected worker " + index);
+                }
+                workers[index] = new Worker(index, processes.get(index), socket, in);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Server socket is closed already, connections and processes started so far are not needed either
+            for (final Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            for (final Process process : processes) {
+                process.destroyForcibly();
+            }
+            if (e instanceof SocketTimeoutException) {
+                throw new IOException("Worker processes did not connect in time", e);
+            }
+            throw e;
+        }
+        for (final Worker worker : workers) {
+            Thread reader = new Thread(worker::read, "taskplanner-coordinator-reader-" + worker.index);
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    /**
+     * Creates builder for configuring executor.
+     *
+     * @return new builder with default settings
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Executes provided tasks on workers.
+     *
+     * @param tasks collection of serializable tasks to execute
+     * @throws TaskExecutionException if dependency graph is invalid, some task is not serializable,
+     *                                some task failed or all workers died
+     */
+    public void execute(Collection<Task> tasks) throws TaskExecutionException {
+        execute(TaskGraph.compile(tasks));
+    }
+
+    /**
+     * Executes compiled graph on workers.
+     *
+     * @param graph compiled graph of serializable tasks
+     * @throws TaskExecutionException if some task is not serializable, some task failed or all workers died
+     */
+    public void execute(TaskGraph graph) throws TaskExecutionException {
+        ExecutionHandle handle = submit(graph);
+        try {
+            handle.await();
+        } catch (InterruptedException e) {
+            handle.cancel();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts execution of compiled graph on workers and returns immediately.
+     *
+     * @param graph compiled graph of serializable tasks
+     * @return handle of the started run
+     * @throws TaskExecutionException if some task is not serializable, is a {@link ResultTask}, or has a timeout
+     *                                or retries
+     */
+    public ExecutionHandle submit(TaskGraph graph) throws TaskExecutionException {
+        if (closed) {
+            throw new IllegalStateException("Executor is closed");
+        }
+        checkSupported(graph);
+        checkSerializable(graph);
+        int run = runCounter.incrementAndGet();
+        DistributedExecution execution = new DistributedExecution(graph, options, this, run, workers.length);
+        runs.put(run, execution);
+        execution.completion().whenComplete((ignored, e) -> {
+            runs.remove(run);
+            for (final Worker worker : workers) {
+                worker.reset();
+            }
+        });
+        execution.start();
+        return new ExecutionHandle(execution);
+    }
+
+    // Number of threads of alive workers
+    int parallelism() {
+        return aliveWorkers() * threadsPerWorker;
+    }
+
+    /**
+     * Returns number of worker processes, which are still connected.
+     *
+     * @return number of alive workers
+     */
+    public int aliveWorkers() {
+        int alive = 0;
+        for (final Worker worker : workers) {
+            synchronized (worker) {
+                if (worker.alive) {
+                    alive++;
+                }
+            }
+        }
+        return alive;
+    }
+
+    // Workers run tasks through Task.execute() only, so they can neither pass inputs nor time or retry tasks.
+    private static void checkSupported(TaskGraph graph) throws TaskExecutionException {
+        for (int id = 0; id < graph.size(); id++) {
+            Task task = graph.task(id);
+            if (task instanceof ResultTask) {
+                throw new TaskExecutionException("Result tasks are not supported in distributed runs: " + task.id());
+            }
+            if (task.timeout() != null) {
+                throw new TaskExecutionException("Timeouts are not supported in distributed runs: " + task.id());
+            }
+            if (task.retryPolicy().maxRetries() > 0) {
+                throw new TaskExecutionException("Retries are not supported in distributed runs: " + task.id());
+            }
+        }
+    }
+
+    // Writes the whole graph once to find tasks, which can't be sent, before anything is sent.
+    private static void checkSerializable(TaskGraph graph) throws TaskExecutionException {
+        try (ObjectOutputStream out = new ObjectOutputStream(OutputStream.nullOutputStream())) {
+            for (int id = 0; id < graph.size(); id++) {
+                Task task = graph.task(id);
+                if (!(task instanceof Serializable)) {
+                    throw new TaskExecutionException("Task is not serializable: " + task.id());
+                }
+                try {
+                    out.writeObject(task);
+                } catch (IOException e) {
+                    throw new TaskExecutionException("Task can not be sent to workers: " + task.id(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sends ready task to the preferred worker, or to the next alive one.
+     */
+    void send(DistributedExecution execution, int id, int preferred) {
+        for (int i = 0; i < workers.length; i++) {
+            if (workers[(preferred + i) % workers.length].send(execution, id)) {
+                return;
+            }
+        }
+        execution.abort(new TaskExecutionException("All workers died"));
+    }
+
+    /**
+     * Sends tasks buffered by {@link #send(DistributedExecution, int, int)}.
+     */
+    void flush() {
+        for (final Worker worker : workers) {
+            worker.flush();
+        }
+    }
+
+    private void requeue(List<Long> lost) {
+        if (closed || lost.isEmpty()) {
+            return;
+        }
+        for (final long key : lost) {
+            DistributedExecution execution = runs.get((int) (key >>> 32));
+            if (execution != null) {
+                int id = (int) key;
+                execution.lost(id);
+                execution.dispatch(id);
+            }
+        }
+        flush();
+    }
+
+    private static long key(int run, int id) {
+        return (long) run << 32 | id & 0xFFFFFFFFL;
+    }
+
+    private static Throwable deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Throwable) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            return new TaskExecutionException("Task failed on worker, failure can not be read", e);
+        }
+    }
+
+    /**
+     * Stops worker processes. Runs, which are not finished, fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (final DistributedExecution execution : runs.values()) {
+            execution.abort(new TaskExecutionException("Executor is closed"));
+        }
+        for (final Worker worker : workers) {
+            synchronized (worker) {
+                if (worker.alive) {
+                    worker.die();
+                }
+            }
+        }
+    }
+
+    /**
+     * Builder of {@link DistributedExecutor}.
+     */
+    public static final class Builder {
+        private int workers = 2;
+        private int threadsPerWorker = 1;
+        private final List<String> jvmOptions = new ArrayList<>();
+        private String classPath = System.getProperty("java.class.path");
+        private FailurePolicy failurePolicy = FailurePolicy.CONTINUE_INDEPENDENT;
+        private ExecutionListener listener;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets number of worker processes. Default is {@code 2}.
+         *
+         * @param workers number of worker processes
+         * @return this builder
+         */
+        public Builder workers(int workers) {
+            if (workers <= 0) {
+                throw new IllegalArgumentException("Number of workers must be positive");
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Sets number of threads, which run tasks in every worker. Default is {@code 1}.
+         *
+         * @param threadsPerWorker number of threads in a worker
+         * @return this builder
+         */
+        public Builder threadsPerWorker(int threadsPerWorker) {
+            if (threadsPerWorker <= 0) {
+                throw new IllegalArgumentException("Number of threads must be positive");
+            }
+            this.threadsPerWorker = threadsPerWorker;
+            return this;
+        }
+
+        /**
+         * Adds options of worker JVMs, e.g. {@code -Xmx2g}.
+         *
+         * @param options JVM options
+         * @return this builder
+         */
+        public Builder jvmOptions(String... options) {
+            jvmOptions.addAll(Arrays.asList(options));
+            return this;
+        }
+
+        /**
+         * Sets class path of worker JVMs. Default is class path of this JVM.
+         *
+         * @param classPath class path with the library and task classes
+         * @return this builder
+         */
+        public Builder classPath(String classPath) {
+            this.classPath = Objects.requireNonNull(classPath);
+            return this;
+        }
+
+        /**
+         * Sets reaction to failed tasks. Default is {@link FailurePolicy#CONTINUE_INDEPENDENT}.
+         * Running tasks are never interrupted.
+         *
+         * @param failurePolicy failure policy
+         * @return this builder
+         */
+        public Builder failurePolicy(FailurePolicy failurePolicy) {
+            this.failurePolicy = Objects.requireNonNull(failurePolicy);
+            return this;
+        }
+
+        /**
+         * Adds listener of task events. Events are produced by the coordinator: task starts when it is sent,
+         * and workers are identified by their numbers. Several listeners receive every event in the order
+         * they were added.
+         *
+         * @param listener execution listener
+         * @return this builder
+         */
+        public Builder listener(ExecutionListener listener) {
+            this.listener = ListenerChain.append(this.listener, Objects.requireNonNull(listener));
+            return this;
+        }
+
+        /**
+         * Starts worker processes and waits for them to connect.
+         *
+         * @return new executor
+         * @throws IOException if workers can not be started or did not connect
+         */
+        public DistributedExecutor build() throws IOException {
+            return new DistributedExecutor(this);
+        }
+    }
+}
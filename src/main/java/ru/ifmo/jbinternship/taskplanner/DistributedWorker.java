@@ -0,0 +1,133 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Worker process of {@link DistributedExecutor}.
+ * <p>
+ * Connects to the coordinator, receives ready tasks, executes them on a fixed number of threads and reports
+ * every completion back. Worker exits as soon as connection to the coordinator is lost.
+ * <p>
+ * Protocol: worker introduces itself with its number, then coordinator sends {@link Assignment assignments}
+ * through one object stream, so every task object is transferred at most once per run. Worker replies with
+ * reports: run number, task number and length of serialized failure, followed by its bytes, or {@code -1}
+ * on success.
+ *
+ * @author Daniil Boger
+ */
+public final class DistributedWorker {
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final ExecutorService pool;
+
+    private DistributedWorker(Socket socket, int threads) throws IOException {
+        this.socket = socket;
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "taskplanner-distributed-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs worker until coordinator closes the connection.
+     *
+     * @param args port of the coordinator on the loopback interface, number of the worker and number of threads
+     * @throws IOException if coordinator is not reachable
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: DistributedWorker <coordinator port> <worker number> <threads>");
+            System.exit(2);
+        }
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+        socket.setTcpNoDelay(true);
+        DistributedWorker worker = new DistributedWorker(socket, Integer.parseInt(args[2]));
+        worker.out.writeInt(Integer.parseInt(args[1]));
+        worker.out.flush();
+        worker.serve();
+    }
+
+    private void serve() {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                Assignment assignment = (Assignment) in.readObject();
+                pool.execute(() -> execute(assignment));
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            // Coordinator is gone, or sent something this worker can't load
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void execute(Assignment assignment) {
+        Throwable failure = null;
+        try {
+            assignment.task.execute();
+        } catch (Throwable e) {
+            failure = e;
+        }
+        byte[] bytes = failure == null ? null : serialize(failure);
+        synchronized (out) {
+            try {
+                out.writeInt(assignment.run);
+                out.writeInt(assignment.id);
+                if (bytes == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.flush();
+            } catch (IOException e) {
+                // Reader will notice that coordinator is gone
+            }
+        }
+    }
+
+    // Failure may reference objects, which are not serializable, then only its description is sent.
+    private static byte[] serialize(Throwable failure) {
+        try {
+            return bytes(failure);
+        } catch (IOException e) {
+            Exception replacement = new Exception(failure.toString());
+            replacement.setStackTrace(failure.getStackTrace());
+            try {
+                return bytes(replacement);
+            } catch (IOException impossible) {
+                throw new UncheckedIOException(impossible);
+            }
+        }
+    }
+
+    private static byte[] bytes(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Ready task sent to a worker.
+     */
+    static final class Assignment implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final int run;
+        final int id;
+        final Task task;
+
+        Assignment(int run, int id, Task task) {
+            this.run = run;
+            this.id = id;
+            this.task = task;
+        }
+    }
+}
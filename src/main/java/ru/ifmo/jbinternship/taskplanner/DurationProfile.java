@@ -0,0 +1,250 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durations of tasks learned from previous runs, which predict how long the next run will take.
+ * <p>
+ * Profile listens to task events as {@link TaskExecutor.Builder#listener(ExecutionListener) listener} of
+ * an executor, and records wall time and CPU time of every completed task by its {@link Task#id() id}. Prediction
+ * for a task is the mean of its recent durations. Profile predicts {@link #remaining(ExecutionHandle) time left}
+ * for a run in progress, and may serve as {@link TaskExecutor.Builder#costs(java.util.function.ToLongFunction)
+ * cost estimates} for scheduling. Tasks, which were never profiled, are predicted to take the mean duration
+ * of profiled ones.
+ * <p>
+ * Profile is stored in an append-only file of records: id, number of samples, wall time and CPU time
+ * in nanoseconds. File is compacted to one record per task when profile is opened.
+ *
+ * @author Daniil Boger
+ */
+public final class DurationProfile implements ExecutionListener, Closeable {
+    // Prediction follows the mean of this many last samples, roughly
+    private static final int MAX_SAMPLES = 8;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Map<String, Estimate> estimates = new ConcurrentHashMap<>();
+    // Sum of wall time predictions, for the mean
+    private final AtomicLong totalWall = new AtomicLong();
+    // Tasks started, but not finished yet
+    private final Map<Task, Start> starts = new ConcurrentHashMap<>();
+    // Guarded by itself
+    private final DataOutputStream out;
+    private IOException failure;
+
+    private static final class Estimate {
+        final int samples;
+        final long wall;
+        // -1 if unknown
+        final long cpu;
+
+        Estimate(int samples, long wall, long cpu) {
+            this.samples = samples;
+            this.wall = wall;
+            this.cpu = cpu;
+        }
+
+        Estimate update(Estimate sample) {
+            int count = Math.min(samples + 1, MAX_SAMPLES);
+            long updatedCpu = cpu < 0 ? sample.cpu : sample.cpu < 0 ? cpu : cpu + (sample.cpu - cpu) / count;
+            return new Estimate(count, wall + (sample.wall - wall) / count, updatedCpu);
+        }
+    }
+
+    private static final class Start {
+        final long wall;
+        // -1 if CPU time is not measured
+        final long cpu;
+        final long thread;
+
+        Start(long wall, long cpu, long thread) {
+            this.wall = wall;
+            this.cpu = cpu;
+            this.thread = thread;
+        }
+    }
+
+    private DurationProfile(DataOutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Opens profile file, creating it if needed, and compacts it.
+     *
+     * @param file path of the profile
+     * @return opened profile
+     * @throws IOException if file can't be read or written
+     */
+    public static DurationProfile open(Path file) throws IOException {
+        Map<String, Estimate> loaded = new HashMap<>();
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                while (true) {
+                    String id = in.readUTF();
+                    Estimate record = new Estimate(in.readInt(), in.readLong(), in.readLong());
+                    loaded.merge(id, record, Estimate::update);
+                }
+            } catch (EOFException | UTFDataFormatException e) {
+                // End of file, or a record torn by a crash
+            }
+        }
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+            for (final Map.Entry<String, Estimate> entry : loaded.entrySet()) {
+                write(out, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        DurationProfile profile = new DurationProfile(new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.APPEND))));
+        for (final Map.Entry<String, Estimate> entry : loaded.entrySet()) {
+            profile.estimates.put(entry.getKey(), entry.getValue());
+            profile.totalWall.addAndGet(entry.getValue().wall);
+        }
+        return profile;
+    }
+
+    private static void write(DataOutputStream out, String id, Estimate estimate) throws IOException {
+        out.writeUTF(id);
+        out.writeInt(estimate.samples);
+        out.writeLong(estimate.wall);
+        out.writeLong(estimate.cpu);
+    }
+
+    @Override
+    public void taskStarted(Task task, long workerId, long nanoTime) {
+        boolean measured = workerId == Thread.currentThread().threadId() && THREADS.isCurrentThreadCpuTimeSupported();
+        starts.put(task, new Start(nanoTime, measured ? THREADS.getCurrentThreadCpuTime() : -1, workerId));
+    }
+
+    @Override
+    public void taskFinished(Task task, long workerId, long nanoTime, Throwable failure) {
+        Start start = starts.remove(task);
+        if (start == null || failure != null) {
+            return;
+        }
+        long cpu = start.cpu >= 0 && start.thread == Thread.currentThread().threadId()
+                ? THREADS.getCurrentThreadCpuTime() - start.cpu
+                : -1;
+        Estimate sample = new Estimate(1, nanoTime - start.wall, cpu);
+        String id = task.id();
+        estimates.compute(id, (key, estimate) -> {
+            Estimate updated = estimate == null ? sample : estimate.update(sample);
+            totalWall.addAndGet(updated.wall - (estimate == null ? 0 : estimate.wall));
+            return updated;
+        });
+        synchronized (out) {
+            if (this.failure == null) {
+                try {
+                    write(out, id, sample);
+                } catch (IOException e) {
+                    this.failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns predicted wall time of the task.
+     *
+     * @param id id of the task
+     * @return predicted duration, or {@code null} if task was never profiled
+     */
+    public Duration wallTime(String id) {
+        Estimate estimate = estimates.get(id);
+        return estimate == null ? null : Duration.ofNanos(estimate.wall);
+    }
+
+    /**
+     * Returns predicted CPU time of the task. CPU time is measured only when task runs on one thread
+     * of this JVM.
+     *
+     * @param id id of the task
+     * @return predicted CPU time, or {@code null} if it is unknown
+     */
+    public Duration cpuTime(String id) {
+        Estimate estimate = estimates.get(id);
+        return estimate == null || estimate.cpu < 0 ? null : Duration.ofNanos(estimate.cpu);
+    }
+
+    /**
+     * Returns predicted wall time of the task in nanoseconds, to be used as its cost. Tasks, which were never
+     * profiled, get the mean of profiled ones, or {@code 1} if there are none.
+     *
+     * @param task task of a graph
+     * @return predicted wall time in nanoseconds, at least {@code 1}
+     */
+    public long cost(Task task) {
+        return predict(task, mean());
+    }
+
+    private long mean() {
+        int count = estimates.size();
+        return count == 0 ? 1 : Math.max(1, totalWall.get() / count);
+    }
+
+    private long predict(Task task, long mean) {
+        Estimate estimate = estimates.get(task.id());
+        return estimate == null ? mean : Math.max(1, estimate.wall);
+    }
+
+    /**
+     * Predicts time left until the run is finished: the longest chain of unfinished tasks, or their total
+     * predicted time divided between working threads of the run, whichever is longer. Time already spent by
+     * running tasks is subtracted from their predictions, if the run is executed by an executor with this
+     * profile as its listener.
+     *
+     * @param handle handle of a run in progress
+     * @return predicted time left
+     */
+    public Duration remaining(ExecutionHandle handle) {
+        long now = System.nanoTime();
+        long mean = mean();
+        return Duration.ofNanos(handle.execution().remainingNanos(task -> {
+            long predicted = predict(task, mean);
+            Start start = starts.get(task);
+            return start == null ? predicted : Math.max(0, predicted - (now - start.wall));
+        }));
+    }
+
+    /**
+     * Writes recorded durations to the file.
+     *
+     * @throws IOException if profile could not be written
+     */
+    public void flush() throws IOException {
+        synchronized (out) {
+            if (failure != null) {
+                throw failure;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes recorded durations and closes the file.
+     *
+     * @throws IOException if profile could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (out) {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
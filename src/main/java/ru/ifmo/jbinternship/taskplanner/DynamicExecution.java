@@ -0,0 +1,416 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Run, which accepts new tasks while it is running.
+ * <p>
+ * Graph is not known in advance, so tasks are kept in linked nodes instead of a compiled {@link TaskGraph}.
+ * Every node lists dependents, which are waiting for it, so a new task may depend on a task, which is finished,
+ * running or not started yet. Ids of tasks are the order they were added in. Ready tasks are drained from
+ * a run-local FIFO queue by {@link QueueWorkers}, and are executed like tasks of a compiled graph.
+ * <p>
+ * New tasks may depend on any task of the run, so results of {@link ResultTask result tasks} are kept
+ * until the end of the run.
+ */
+final class DynamicExecution extends AbstractExecution implements TaskContext {
+    private static final byte COMPLETED = 1;
+    private static final byte FAILED = 2;
+
+    private final QueueWorkers workers;
+    // Journal of completed tasks, or null
+    private final CompletionJournal journal;
+    // All tasks of the run. Additions are serialized by locking the map.
+    private final Map<Task, Node> nodes = new ConcurrentHashMap<>();
+    // Nodes by id. Replaced by a larger copy under the lock of nodes, worker reads it after it got the id.
+    private volatile Node[] byId = new Node[16];
+    // Guarded by nodes
+    private int size;
+    // Ids of journaled tasks of the run. Guarded by nodes.
+    private final Set<String> journaledIds = new HashSet<>();
+    // Number of tasks, which were done before they were added
+    private volatile int presetTasks;
+
+    private static final class Node {
+        final int id;
+        final Task task;
+        final Node[] dependencies;
+        // Limited resources needed by the task, or null
+        final long[] demand;
+        // Cache entry key, or null if result is not cached
+        final String cacheKey;
+        // Unfinished dependencies, plus one while node is being added
+        final AtomicInteger pending;
+        // Dependents waiting for this node, null after it finished. Guarded by the node.
+        List<Node> successors;
+        // 0 - not finished, COMPLETED or FAILED. Written under the node lock.
+        volatile byte state;
+        volatile Object result;
+
+        Node(int id, Task task, Node[] dependencies, long[] demand, String cacheKey) {
+            this.id = id;
+            this.task = task;
+            this.dependencies = dependencies;
+            this.demand = demand;
+            this.cacheKey = cacheKey;
+            this.pending = new AtomicInteger(dependencies.length + 1);
+        }
+    }
+
+    DynamicExecution(ExecutionOptions options, Executor pool, int parallelism, WorkerTuner tuner,
+                     CompletionJournal journal) {
+        super(options);
+        this.workers = new QueueWorkers(this, pool, parallelism, tuner, new LinkedReadyQueue());
+        this.journal = journal;
+    }
+
+    /**
+     * Starts the run with given tasks.
+     *
+     * @throws IllegalArgumentException if tasks contain duplicates, unknown dependencies or cycles
+     */
+    void start(Collection<? extends Task> tasks) {
+        // The run holds itself open until initial tasks are added.
+        outstanding.incrementAndGet();
+        try {
+            addNodes(tasks);
+        } finally {
+            if (outstanding.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    @Override
+    public void add(Collection<? extends Task> tasks) {
+        // Adding task keeps the run open, so that its dependencies can't be the last tasks to finish meanwhile.
+        while (true) {
+            int current = outstanding.get();
+            if (current == 0) {
+                throw new IllegalStateException("Run is already finished");
+            }
+            if (outstanding.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        try {
+            addNodes(tasks);
+        } finally {
+            if (outstanding.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    private void addNodes(Collection<? extends Task> tasks) {
+        List<Node> added;
+        synchronized (nodes) {
+            List<Task> order = order(tasks);
+            // Demands and journal are checked before any task is added
+            long[][] demands = new long[order.size()][];
+            if (options.resources != null) {
+                for (int i = 0; i < demands.length; i++) {
+                    demands[i] = options.resources.demand(order.get(i));
+                }
+            }
+            boolean[] done = journal != null ? replay(order) : new boolean[order.size()];
+            if (size + order.size() > byId.length) {
+                byId = Arrays.copyOf(byId, Math.max(byId.length * 2, size + order.size()));
+            }
+            added = new ArrayList<>(tasks.size());
+            for (final Task task : order) {
+                Node[] dependencies = new Node[task.dependencies().size()];
+                int i = 0;
+                for (final Task dependency : task.dependencies()) {
+                    dependencies[i++] = nodes.get(dependency);
+                }
+                Node node = new Node(size, task, dependencies, demands[added.size()], cacheKey(task, dependencies));
+                byId[size++] = node;
+                nodes.put(task, node);
+                if (done[added.size()]) {
+                    node.state = COMPLETED;
+                    presetTasks++;
+                } else {
+                    for (final Node dependency : dependencies) {
+                        synchronized (dependency) {
+                            if (dependency.state == COMPLETED) {
+                                node.pending.decrementAndGet();
+                            } else if (dependency.state == 0) {
+                                if (dependency.successors == null) {
+                                    dependency.successors = new ArrayList<>();
+                                }
+                                dependency.successors.add(node);
+                            }
+                            // Dependents of a failed task are never ready
+                        }
+                    }
+                }
+                added.add(node);
+            }
+        }
+        boolean released = false;
+        for (final Node node : added) {
+            if (node.state == 0 && node.pending.decrementAndGet() == 0) {
+                outstanding.incrementAndGet();
+                dispatch(node);
+                released = true;
+            }
+        }
+        if (released) {
+            workers.spawn();
+        }
+    }
+
+    // Validates new tasks and returns them in topological order. Must be called under the lock.
+    private List<Task> order(Collection<? extends Task> tasks) {
+        Map<Task, Integer> remaining = new HashMap<>(tasks.size() * 4 / 3 + 1);
+        for (final Task task : tasks) {
+            if (nodes.containsKey(task) || remaining.put(task, 0) != null) {
+                throw new IllegalArgumentException("Duplicate tasks are not allowed");
+            }
+        }
+        Map<Task, List<Task>> successors = new HashMap<>();
+        for (final Task task : tasks) {
+            int count = 0;
+            for (final Task dependency : task.dependencies()) {
+                if (remaining.containsKey(dependency)) {
+                    successors.computeIfAbsent(dependency, key -> new ArrayList<>()).add(task);
+                    count++;
+                } else if (!nodes.containsKey(dependency)) {
+                    throw new IllegalArgumentException("One of tasks requires dependency, which is not present");
+                }
+            }
+            remaining.put(task, count);
+        }
+        List<Task> order = new ArrayList<>(tasks.size());
+        ArrayDeque<Task> queue = new ArrayDeque<>();
+        for (final Task task : tasks) {
+            if (remaining.get(task) == 0) {
+                queue.add(task);
+            }
+        }
+        while (!queue.isEmpty()) {
+            Task task = queue.poll();
+            order.add(task);
+            for (final Task successor : successors.getOrDefault(task, Collections.emptyList())) {
+                if (remaining.merge(successor, -1, Integer::sum) == 0) {
+                    queue.add(successor);
+                }
+            }
+        }
+        if (order.size() != tasks.size()) {
+            throw new IllegalArgumentException("Dependency graph is not acyclic");
+        }
+        return order;
+    }
+
+    // Returns new tasks, which are done according to the journal. Must be called under the lock.
+    private boolean[] replay(List<Task> order) {
+        boolean[] done = new boolean[order.size()];
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < done.length; i++) {
+            Task task = order.get(i);
+            if (journaledIds.contains(task.id()) || !ids.add(task.id())) {
+                throw new IllegalArgumentException("Task ids must be unique to be journaled: " + task.id());
+            }
+            done[i] = journal.replay(task);
+        }
+        journaledIds.addAll(ids);
+        return done;
+    }
+
+    // Task has an entry key if it is cacheable, and all of its dependencies have keys.
+    private String cacheKey(Task task, Node[] dependencies) {
+        if (options.cache == null || !(task instanceof CacheableTask)) {
+            return null;
+        }
+        String[] dependencyKeys = new String[dependencies.length];
+        for (int i = 0; i < dependencyKeys.length; i++) {
+            dependencyKeys[i] = dependencies[i].cacheKey;
+            if (dependencyKeys[i] == null) {
+                return null;
+            }
+        }
+        return ResultCache.entryKey(((CacheableTask<?>) task).cacheKey(), dependencyKeys);
+    }
+
+    private void dispatch(Node node) {
+        ready(node.task);
+        workers.offer(node.id);
+    }
+
+    private Node node(int id) {
+        return byId[id];
+    }
+
+    @Override
+    Task task(int id) {
+        return node(id).task;
+    }
+
+    @Override
+    long[] demand(int id) {
+        return node(id).demand;
+    }
+
+    @Override
+    String cacheKey(int id) {
+        return node(id).cacheKey;
+    }
+
+    @Override
+    Inputs inputs(int id) {
+        Node node = node(id);
+        Task[] dependencies = new Task[node.dependencies.length];
+        Object[] results = new Object[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = node.dependencies[i].task;
+            results[i] = node.dependencies[i].result;
+        }
+        return new Inputs(dependencies, results);
+    }
+
+    @Override
+    Object execute(Task task, int current) {
+        if (task instanceof DynamicTask) {
+            ((DynamicTask) task).execute(this);
+            return null;
+        }
+        return super.execute(task, current);
+    }
+
+    @Override
+    int complete(int current, Object result) {
+        Node node = node(current);
+        if (result != null) {
+            node.result = result;
+        }
+        List<Node> successors;
+        synchronized (node) {
+            node.state = COMPLETED;
+            successors = node.successors;
+            node.successors = null;
+        }
+        if (journal != null) {
+            journal.append(node.task.id());
+        }
+        int next = -1;
+        if (successors != null) {
+            boolean released = false;
+            for (final Node successor : successors) {
+                if (successor.pending.decrementAndGet() == 0) {
+                    outstanding.incrementAndGet();
+                    if (options.inlineContinuation && next < 0) {
+                        ready(successor.task);
+                        next = successor.id;
+                    } else {
+                        dispatch(successor);
+                        released = true;
+                    }
+                }
+            }
+            if (released) {
+                workers.spawn();
+            }
+        }
+        return next;
+    }
+
+    @Override
+    void markFailed(int current) {
+        Node node = node(current);
+        synchronized (node) {
+            node.state = FAILED;
+            node.successors = null;
+        }
+    }
+
+    @Override
+    void resume(int id) {
+        workers.resume(id);
+    }
+
+    @Override
+    void redispatch(int id) {
+        workers.redispatch(id);
+    }
+
+    @Override
+    int parallelism() {
+        return workers.parallelism();
+    }
+
+    @Override
+    long[] remainingWork(ToLongFunction<Task> remaining) {
+        Node[] snapshot;
+        synchronized (nodes) {
+            snapshot = Arrays.copyOf(byId, size);
+        }
+        // Top levels of unfinished tasks, or -1 for dependents of failed ones. Dependencies go first.
+        long[] levels = new long[snapshot.length];
+        long longest = 0;
+        long total = 0;
+        for (final Node node : snapshot) {
+            if (node.state != 0) {
+                levels[node.id] = node.state == FAILED ? -1 : 0;
+                continue;
+            }
+            long level = 0;
+            for (final Node dependency : node.dependencies) {
+                long dependencyLevel = levels[dependency.id];
+                if (dependencyLevel < 0) {
+                    level = -1;
+                    break;
+                }
+                level = Math.max(level, dependencyLevel);
+            }
+            if (level < 0) {
+                levels[node.id] = -1;
+                continue;
+            }
+            long own = remaining.applyAsLong(node.task);
+            levels[node.id] = level + own;
+            longest = Math.max(longest, level + own);
+            total += own;
+        }
+        return new long[]{longest, total};
+    }
+
+    @Override
+    int pendingCount() {
+        return (int) (nodes.size() - presetTasks - startedTasks.sum());
+    }
+
+    @Override
+    List<String> unfinishedTaskIds() {
+        List<String> unfinished = new ArrayList<>();
+        for (final Node node : nodes.values()) {
+            if (node.state == 0) {
+                unfinished.add(node.task.id());
+            }
+        }
+        return unfinished;
+    }
+
+    @Override
+    Object result(Task task) {
+        Node node = nodes.get(task);
+        if (node == null) {
+            throw new IllegalArgumentException("Task does not belong to the run");
+        }
+        return node.result;
+    }
+}
@@ -0,0 +1,25 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.Collection;
+
+/**
+ * Handle of a run started by {@link TaskExecutor#submitDynamic(Collection)}, which accepts new tasks
+ * while running.
+ *
+ * @author Daniil Boger
+ */
+public final class DynamicExecutionHandle extends ExecutionHandle implements TaskContext {
+    DynamicExecutionHandle(DynamicExecution execution) {
+        super(execution);
+    }
+
+    /**
+     * Adds tasks to the run, see {@link TaskContext#add(Collection)}.
+     *
+     * @param tasks tasks to add
+     */
+    @Override
+    public void add(Collection<? extends Task> tasks) {
+        ((DynamicExecution) execution).add(tasks);
+    }
+}
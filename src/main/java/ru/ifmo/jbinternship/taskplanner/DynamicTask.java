@@ -0,0 +1,31 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.Collection;
+
+/**
+ * Task, which may add new tasks to its run while executing, e.g. a task per file it has found.
+ * <p>
+ * Dynamic tasks are run by {@link TaskExecutor#submitDynamic(Collection)}, compilation of a {@link TaskGraph}
+ * rejects them.
+ *
+ * @author Daniil Boger
+ */
+public interface DynamicTask extends Task {
+    /**
+     * Executes the task.
+     *
+     * @param context context of the run, which accepts new tasks
+     */
+    void execute(TaskContext context);
+
+    /**
+     * Dynamic tasks are run only by {@link TaskExecutor}, which provides their context, so executors never call
+     * this method.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    default void execute() {
+        throw new UnsupportedOperationException("Dynamic task must be run by TaskExecutor#submitDynamic");
+    }
+}
@@ -0,0 +1,328 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * Single run of a compiled {@link TaskGraph}.
+ * <p>
+ * Tracks dependency counters and task states, ids of tasks are their ids in the graph. Subclasses decide how
+ * ready tasks reach working threads.
+ */
+abstract class Execution extends AbstractExecution {
+    private static final byte COMPLETED = 1;
+    private static final byte FAILED = 2;
+
+    final TaskGraph graph;
+
+    private final AtomicIntegerArray pending;
+    // Results of ResultTasks and number of dependents, which still need them. Null if graph produces no results,
+    // consumers are null if results are retained.
+    private Object[] results;
+    private AtomicIntegerArray consumers;
+    // Cache entry keys of cacheable tasks. Null if there is no cache.
+    private final String[] cacheKeys;
+    // Number of tasks, which were done before the run started.
+    private int presetTasks;
+    // Per task: 0 - not finished, COMPLETED or FAILED.
+    private final byte[] states;
+    // Limited resources needed by tasks. Null if executor has no limits or no task of the graph needs them.
+    private final long[][] demands;
+    // Journal of completed tasks, or null
+    private CompletionJournal journal;
+
+    Execution(TaskGraph graph, ExecutionOptions options) {
+        super(options);
+        this.graph = graph;
+        int n = graph.size();
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            counts[i] = graph.dependencyCount(i);
+        }
+        this.pending = new AtomicIntegerArray(counts);
+        if (graph.producesResults()) {
+            this.results = new Object[n];
+            int[] successorCounts = new int[n];
+            for (int i = 0; i < n; i++) {
+                successorCounts[i] = graph.successorsTo(i) - graph.successorsFrom(i);
+            }
+            this.consumers = new AtomicIntegerArray(successorCounts);
+        } else {
+            this.results = null;
+            this.consumers = null;
+        }
+        this.states = new byte[n];
+        this.cacheKeys = options.cache != null && graph.producesResults() ? cacheKeys() : null;
+        this.demands = options.resources != null ? demands() : null;
+    }
+
+    private long[][] demands() {
+        long[][] demands = null;
+        for (int id = 0; id < graph.size(); id++) {
+            long[] demand = options.resources.demand(graph.task(id));
+            if (demand != null) {
+                if (demands == null) {
+                    demands = new long[graph.size()][];
+                }
+                demands[id] = demand;
+            }
+        }
+        return demands;
+    }
+
+    // Task has an entry key if it is cacheable, and all of its dependencies have keys.
+    private String[] cacheKeys() {
+        String[] keys = new String[graph.size()];
+        for (final int id : graph.order()) {
+            Task task = graph.task(id);
+            if (!(task instanceof CacheableTask)) {
+                continue;
+            }
+            String[] dependencyKeys = new String[graph.dependencyCount(id)];
+            boolean cacheable = true;
+            for (int i = 0; i < dependencyKeys.length && cacheable; i++) {
+                dependencyKeys[i] = keys[graph.dependency(graph.dependenciesFrom(id) + i)];
+                cacheable = dependencyKeys[i] != null;
+            }
+            if (cacheable) {
+                keys[id] = ResultCache.entryKey(((CacheableTask<?>) task).cacheKey(), dependencyKeys);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Hands ready task to working threads.
+     */
+    abstract void dispatch(int id);
+
+    /**
+     * Called after a batch of tasks was dispatched.
+     */
+    void dispatched() {
+    }
+
+    @Override
+    void redispatch(int id) {
+        dispatch(id);
+        dispatched();
+    }
+
+    /**
+     * Keeps results of all tasks until the end of the run. Must be called before {@link #start(boolean[])}.
+     *
+     * @param seed results known from previous runs, or {@code null}
+     */
+    void retainResults(Object[] seed) {
+        results = seed != null ? seed : new Object[graph.size()];
+        consumers = null;
+    }
+
+    /**
+     * Appends every task completed by the run to the journal. Must be called before {@link #start(boolean[])}.
+     */
+    void journal(CompletionJournal journal) {
+        this.journal = journal;
+    }
+
+    void start() {
+        start(null);
+    }
+
+    /**
+     * Starts the run.
+     *
+     * @param done tasks, which are considered done without execution, or {@code null}
+     */
+    void start(boolean[] done) {
+        int[] roots = done == null ? graph.roots() : presetDone(done);
+        if (roots.length == 0) {
+            finish();
+            return;
+        }
+        outstanding.addAndGet(roots.length);
+        for (final int root : roots) {
+            ready(graph.task(root));
+            dispatch(root);
+        }
+        dispatched();
+    }
+
+    // Marks given tasks completed and returns tasks, which are ready after that. Task, which is not done, may have
+    // done successors, those are skipped when it completes.
+    private int[] presetDone(boolean[] done) {
+        final int n = graph.size();
+        for (int id = 0; id < n; id++) {
+            if (done[id]) {
+                states[id] = COMPLETED;
+                presetTasks++;
+                for (int i = graph.successorsFrom(id), to = graph.successorsTo(id); i < to; i++) {
+                    int successor = graph.successor(i);
+                    pending.set(successor, pending.get(successor) - 1);
+                }
+                // Done task will not consume results of its dependencies
+                if (consumers != null) {
+                    for (int i = graph.dependenciesFrom(id), to = graph.dependenciesTo(id); i < to; i++) {
+                        int dependency = graph.dependency(i);
+                        consumers.set(dependency, consumers.get(dependency) - 1);
+                    }
+                }
+            }
+        }
+        int count = 0;
+        int[] ready = new int[n - presetTasks];
+        for (int id = 0; id < n; id++) {
+            if (!done[id] && pending.get(id) == 0) {
+                ready[count++] = id;
+            }
+        }
+        return Arrays.copyOf(ready, count);
+    }
+
+    @Override
+    int pendingCount() {
+        return (int) (graph.size() - presetTasks - startedTasks.sum());
+    }
+
+    @Override
+    List<String> unfinishedTaskIds() {
+        List<String> unfinished = new ArrayList<>();
+        for (int i = 0; i < graph.size(); i++) {
+            if (states[i] == 0) {
+                unfinished.add(graph.task(i).id());
+            }
+        }
+        return unfinished;
+    }
+
+    @Override
+    Object result(Task task) {
+        int id = graph.indexOf(task);
+        if (id < 0) {
+            throw new IllegalArgumentException("Task does not belong to the run");
+        }
+        return result(id);
+    }
+
+    @Override
+    long[] remainingWork(ToLongFunction<Task> remaining) {
+        final int n = graph.size();
+        int[] order = graph.order();
+        boolean[] skipped = new boolean[n];
+        for (final int id : order) {
+            if (skipped[id] || states[id] == FAILED) {
+                for (int i = graph.successorsFrom(id), to = graph.successorsTo(id); i < to; i++) {
+                    skipped[graph.successor(i)] = true;
+                }
+            }
+        }
+        // Bottom levels of unfinished tasks
+        long[] levels = new long[n];
+        long longest = 0;
+        long total = 0;
+        for (int k = n - 1; k >= 0; k--) {
+            int id = order[k];
+            if (states[id] != 0 || skipped[id]) {
+                continue;
+            }
+            long level = 0;
+            for (int i = graph.successorsFrom(id), to = graph.successorsTo(id); i < to; i++) {
+                level = Math.max(level, levels[graph.successor(i)]);
+            }
+            long own = remaining.applyAsLong(graph.task(id));
+            levels[id] = level + own;
+            longest = Math.max(longest, levels[id]);
+            total += own;
+        }
+        return new long[]{longest, total};
+    }
+
+    @Override
+    Task task(int id) {
+        return graph.task(id);
+    }
+
+    @Override
+    long[] demand(int id) {
+        return demands != null ? demands[id] : null;
+    }
+
+    @Override
+    String cacheKey(int id) {
+        return cacheKeys != null ? cacheKeys[id] : null;
+    }
+
+    @Override
+    Inputs inputs(int id) {
+        return new Inputs(results, graph, id);
+    }
+
+    @Override
+    int complete(int current, Object result) {
+        int next = -1;
+        if (result != null) {
+            results[current] = result;
+        }
+        states[current] = COMPLETED;
+        if (journal != null) {
+            journal.append(graph.task(current).id());
+        }
+        if (consumers != null) {
+            releaseInputs(current);
+        }
+        boolean released = false;
+        for (int i = graph.successorsFrom(current), to = graph.successorsTo(current); i < to; i++) {
+            int edge = graph.successor(i);
+            // Successor may be done before the run, while this task is executed again for other successors
+            if (states[edge] == COMPLETED) {
+                continue;
+            }
+            if (pending.decrementAndGet(edge) == 0) {
+                outstanding.incrementAndGet();
+                ready(graph.task(edge));
+                if (options.inlineContinuation && next < 0) {
+                    next = edge;
+                } else {
+                    dispatch(edge);
+                    released = true;
+                }
+            }
+        }
+        if (released) {
+            dispatched();
+        }
+        return next;
+    }
+
+    @Override
+    void markFailed(int current) {
+        states[current] = FAILED;
+    }
+
+    // Drops results, which are not needed by dependents anymore.
+    private void releaseInputs(int current) {
+        for (int i = graph.dependenciesFrom(current), to = graph.dependenciesTo(current); i < to; i++) {
+            int dependency = graph.dependency(i);
+            if (consumers.decrementAndGet(dependency) == 0) {
+                results[dependency] = null;
+            }
+        }
+    }
+
+    /**
+     * Returns whether task was completed during the run or before it.
+     */
+    boolean isCompleted(int id) {
+        return states[id] == COMPLETED;
+    }
+
+    /**
+     * Returns result of the task, if it was not released yet.
+     */
+    Object result(int id) {
+        return results == null ? null : results[id];
+    }
+}
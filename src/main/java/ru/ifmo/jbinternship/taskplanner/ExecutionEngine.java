@@ -0,0 +1,28 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Defines how {@link TaskExecutor} hands ready tasks to working threads.
+ *
+ * @author Daniil Boger
+ */
+public enum ExecutionEngine {
+    /**
+     * Ready tasks of a run are kept in one queue, drained by workers of the executor's pool.
+     * Supports every {@link SchedulingPolicy}.
+     */
+    SHARED_QUEUE,
+    /**
+     * Every worker of a {@link java.util.concurrent.ForkJoinPool} keeps its own deque. Successors readied by a
+     * worker go onto its deque, and idle workers steal from others. Avoids contention on a single queue with
+     * many tiny tasks, but ignores {@link SchedulingPolicy}. Executor keeps one pool for all runs, which grows
+     * to the largest number of threads asked for. Runs with fewer threads keep no more of their tasks in the pool
+     * at once.
+     */
+    WORK_STEALING,
+    /**
+     * Ready tasks are kept in one queue, as with {@link #SHARED_QUEUE}, but every worker is a new virtual thread,
+     * so tasks blocked on I/O don't hold platform threads. Number of tasks run at once is not limited, unless
+     * number of threads is set explicitly.
+     */
+    VIRTUAL_THREADS
+}
@@ -0,0 +1,137 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Handle of a run started by {@link TaskExecutor#submit(TaskGraph, int)}.
+ * <p>
+ * Allows to watch progress of the run, cancel it, wait for it or attach callbacks to its {@link #future()}.
+ * Runs started by {@link TaskExecutor#submitDynamic(Collection)} also accept new tasks through
+ * their {@link DynamicExecutionHandle}.
+ *
+ * @author Daniil Boger
+ */
+public class ExecutionHandle {
+    final AbstractExecution execution;
+
+    ExecutionHandle(AbstractExecution execution) {
+        this.execution = execution;
+    }
+
+    AbstractExecution execution() {
+        return execution;
+    }
+
+    /**
+     * Returns number of successfully completed tasks.
+     *
+     * @return number of completed tasks
+     */
+    public int completed() {
+        return execution.completedCount();
+    }
+
+    /**
+     * Returns number of tasks, which are running right now.
+     *
+     * @return number of running tasks
+     */
+    public int running() {
+        return execution.runningCount();
+    }
+
+    /**
+     * Returns number of tasks, which were not started yet.
+     *
+     * @return number of pending tasks
+     */
+    public int pending() {
+        return execution.pendingCount();
+    }
+
+    /**
+     * Returns number of retries of failed tasks, see {@link Task#retryPolicy()}.
+     *
+     * @return number of retries
+     */
+    public int retries() {
+        return (int) execution.retriedTasks.sum();
+    }
+
+    /**
+     * Returns number of task attempts, which exceeded their {@link Task#timeout() timeouts}.
+     *
+     * @return number of timeouts
+     */
+    public int timeouts() {
+        return (int) execution.timedOutTasks.sum();
+    }
+
+    /**
+     * Stops scheduling new tasks of the run. Tasks, which are already running, are not interrupted.
+     * Future of the cancelled run is completed with {@link CancellationException}.
+     *
+     * @return {@code false} if run was already finished
+     */
+    public boolean cancel() {
+        return execution.cancel();
+    }
+
+    /**
+     * Returns whether run is finished, successfully or not.
+     *
+     * @return {@code true} if run is finished
+     */
+    public boolean isDone() {
+        return execution.completion().isDone();
+    }
+
+    /**
+     * Returns future, which is completed when run is finished. If some task failed, future is completed
+     * exceptionally with {@link TaskExecutionException}. Callbacks attached to it without an executor
+     * may run on working threads.
+     *
+     * @return future of the run
+     */
+    public CompletableFuture<Void> future() {
+        return execution.completion();
+    }
+
+    /**
+     * Returns result of a task of the finished run. Results of tasks without dependents are kept until the handle
+     * is dropped, results of other tasks are released as soon as all their dependents finish.
+     *
+     * @param task result task of the run
+     * @param <R>  type of the result
+     * @return result of the task, or {@code null} if it was released or not computed
+     * @throws IllegalStateException if run is not finished yet
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R result(ResultTask<R> task) {
+        if (!isDone()) {
+            throw new IllegalStateException("Run is not finished yet");
+        }
+        return (R) execution.result(task);
+    }
+
+    /**
+     * Waits for the run to finish.
+     *
+     * @throws TaskExecutionException if some task failed
+     * @throws CancellationException  if run was cancelled
+     * @throws InterruptedException   if current thread was interrupted while waiting
+     */
+    public void await() throws TaskExecutionException, InterruptedException {
+        try {
+            execution.completion().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TaskExecutionException) {
+                throw (TaskExecutionException) e.getCause();
+            }
+            throw new TaskExecutionException("Parallel processing failed", e.getCause());
+        }
+    }
+}
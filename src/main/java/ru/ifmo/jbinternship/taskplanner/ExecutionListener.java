@@ -0,0 +1,42 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Listener of task events of {@link TaskExecutor} runs.
+ * <p>
+ * Methods are called on working threads, concurrently, so they must be thread-safe, fast and must not throw.
+ * Times are values of {@link System#nanoTime()}, workers are identified by thread ids
+ * or, in runs of {@link DistributedExecutor}, by numbers of worker processes.
+ *
+ * @author Daniil Boger
+ */
+public interface ExecutionListener {
+    /**
+     * Called when all dependencies of the task are completed.
+     *
+     * @param task     ready task
+     * @param nanoTime time of the event
+     */
+    default void taskReady(Task task, long nanoTime) {
+    }
+
+    /**
+     * Called right before the task is executed.
+     *
+     * @param task     started task
+     * @param workerId id of the thread, which executes the task
+     * @param nanoTime time of the event
+     */
+    default void taskStarted(Task task, long workerId, long nanoTime) {
+    }
+
+    /**
+     * Called right after the task is executed.
+     *
+     * @param task     finished task
+     * @param workerId id of the thread, which executed the task
+     * @param nanoTime time of the event
+     * @param failure  exception thrown by the task, or {@code null} if it completed successfully
+     */
+    default void taskFinished(Task task, long workerId, long nanoTime, Throwable failure) {
+    }
+}
@@ -0,0 +1,36 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Settings of {@link TaskExecutor}, shared by all of its runs.
+ */
+final class ExecutionOptions {
+    final SchedulingPolicy schedulingPolicy;
+    final boolean inlineContinuation;
+    final FailurePolicy failurePolicy;
+    final boolean interruptOnFailure;
+    final ResultCache cache;
+    final ExecutionListener listener;
+    // Null if resources are not limited
+    final ResourcePool resources;
+    // Cost estimates replacing Task.cost(), or null
+    final ToLongFunction<? super Task> costs;
+    // Timer of timeouts and retries, or null if they are not supported
+    final TaskTimer timer;
+
+    ExecutionOptions(SchedulingPolicy schedulingPolicy, boolean inlineContinuation,
+                     FailurePolicy failurePolicy, boolean interruptOnFailure, ResultCache cache,
+                     ExecutionListener listener, ResourcePool resources, ToLongFunction<? super Task> costs,
+                     TaskTimer timer) {
+        this.schedulingPolicy = schedulingPolicy;
+        this.inlineContinuation = inlineContinuation;
+        this.failurePolicy = failurePolicy;
+        this.interruptOnFailure = interruptOnFailure;
+        this.cache = cache;
+        this.listener = listener;
+        this.resources = resources;
+        this.costs = costs;
+        this.timer = timer;
+    }
+}
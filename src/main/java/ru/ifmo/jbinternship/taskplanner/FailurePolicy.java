@@ -0,0 +1,18 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Defines how {@link TaskExecutor} reacts to a failed task.
+ *
+ * @author Daniil Boger
+ */
+public enum FailurePolicy {
+    /**
+     * Stop scheduling new tasks at the first failure and return immediately.
+     * Tasks, which are already running, may be interrupted.
+     */
+    FAIL_FAST,
+    /**
+     * Skip dependents of the failed task, but finish all branches which do not depend on it.
+     */
+    CONTINUE_INDEPENDENT
+}
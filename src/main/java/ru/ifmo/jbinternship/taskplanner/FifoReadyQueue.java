@@ -0,0 +1,53 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free FIFO queue of task ids for a single run.
+ * <p>
+ * Every task becomes ready at most once per run, so queue is a plain array of graph size
+ * and neither wraps around nor boxes ids.
+ */
+final class FifoReadyQueue implements ReadyQueue {
+    private final AtomicIntegerArray slots;
+    private final AtomicInteger head = new AtomicInteger();
+    private final AtomicInteger tail = new AtomicInteger();
+
+    FifoReadyQueue(int capacity) {
+        slots = new AtomicIntegerArray(capacity);
+    }
+
+    @Override
+    public void offer(int id) {
+        // Ids are stored shifted by one: zero marks a claimed, but not yet published slot.
+        slots.set(tail.getAndIncrement(), id + 1);
+    }
+
+    @Override
+    public int poll() {
+        while (true) {
+            int h = head.get();
+            if (h >= tail.get()) {
+                return -1;
+            }
+            if (head.compareAndSet(h, h + 1)) {
+                int value;
+                while ((value = slots.get(h)) == 0) {
+                    Thread.onSpinWait();
+                }
+                return value - 1;
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, tail.get() - head.get());
+    }
+}
@@ -0,0 +1,184 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Re-executes a graph incrementally, like a build system.
+ * <p>
+ * Runner remembers {@link Task#fingerprint() fingerprints} and dependencies of tasks completed by the previous
+ * run. Next run executes only tasks, which are new, failed last time, have a changed fingerprint or changed
+ * dependencies, together with all of their transitive dependents. Other tasks are considered done, and
+ * {@link ResultTask results} they produced last time are passed to dependents again.
+ * <p>
+ * Runner is not thread-safe: runs must not overlap.
+ *
+ * @author Daniil Boger
+ */
+public final class IncrementalRunner {
+    private final TaskExecutor executor;
+    private final Map<Task, State> states = new HashMap<>();
+    private final Map<Task, Object> results = new HashMap<>();
+    private int executedTasks;
+
+    /**
+     * Creates runner on top of given executor.
+     *
+     * @param executor executor to run tasks
+     */
+    public IncrementalRunner(TaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Executes changed tasks and their dependents with default number of threads.
+     *
+     * @param tasks collection of tasks
+     * @throws TaskExecutionException if dependency graph is invalid or some task failed
+     */
+    public void execute(Collection<Task> tasks) throws TaskExecutionException {
+        execute(executor.compile(tasks), executor.defaultThreadsCount());
+    }
+
+    /**
+     * Executes changed tasks among the targets and tasks they depend on, together with their dependents
+     * among those, with default number of threads. Other tasks are remembered as they were.
+     *
+     * @param tasks   collection of all tasks
+     * @param targets tasks, which have to be up to date
+     * @throws TaskExecutionException if needed tasks are invalid or some task failed
+     * @see TaskExecutor#compile(Collection, Collection)
+     */
+    public void execute(Collection<Task> tasks, Collection<? extends Task> targets) throws TaskExecutionException {
+        run(executor.compile(tasks, targets), executor.defaultThreadsCount(), false);
+    }
+
+    /**
+     * Executes changed tasks of compiled graph and their dependents. Tasks, which are not in the graph,
+     * are forgotten.
+     *
+     * @param graph        compiled graph
+     * @param threadsCount number of working threads
+     * @throws TaskExecutionException if some task failed
+     */
+    public void execute(TaskGraph graph, int threadsCount) throws TaskExecutionException {
+        run(graph, threadsCount, true);
+    }
+
+    private void run(TaskGraph graph, int threadsCount, boolean complete) throws TaskExecutionException {
+        final int n = graph.size();
+        State[] current = new State[n];
+        boolean[] dirty = new boolean[n];
+        for (int id = 0; id < n; id++) {
+            Task task = graph.task(id);
+            current[id] = new State(task.fingerprint(), dependencies(graph, id));
+            dirty[id] = !current[id].matches(states.get(task));
+        }
+        // Dependents of changed tasks are changed too. Topological order visits dependencies first.
+        for (final int id : graph.order()) {
+            if (dirty[id]) {
+                for (int i = graph.successorsFrom(id), to = graph.successorsTo(id); i < to; i++) {
+                    dirty[graph.successor(i)] = true;
+                }
+            }
+        }
+        boolean[] done = new boolean[n];
+        Object[] seed = new Object[n];
+        for (int id = 0; id < n; id++) {
+            done[id] = !dirty[id];
+            if (done[id]) {
+                seed[id] = results.get(graph.task(id));
+            }
+        }
+        ExecutionHandle handle = executor.submit(graph, threadsCount, done, seed);
+        try {
+            handle.await();
+        } catch (InterruptedException e) {
+            handle.cancel();
+            Thread.currentThread().interrupt();
+        } finally {
+            remember(graph, (Execution) handle.execution(), dirty, current, complete);
+        }
+    }
+
+    /**
+     * Returns number of tasks actually executed by the last run.
+     *
+     * @return number of executed tasks
+     */
+    public int executedTasks() {
+        return executedTasks;
+    }
+
+    /**
+     * Returns result of a task, as computed by the last run, which completed it.
+     *
+     * @param task result task
+     * @param <R>  type of the result
+     * @return result of the task, or {@code null} if it is unknown
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R result(ResultTask<R> task) {
+        return (R) results.get(task);
+    }
+
+    /**
+     * Forgets all previous runs, so that next run executes every task.
+     */
+    public void reset() {
+        states.clear();
+        results.clear();
+    }
+
+    private void remember(TaskGraph graph, Execution execution, boolean[] dirty, State[] current,
+                          boolean complete) {
+        if (complete) {
+            // Tasks removed from the graph are forgotten
+            states.keySet().removeIf(task -> graph.indexOf(task) < 0);
+            results.keySet().removeIf(task -> graph.indexOf(task) < 0);
+        }
+        executedTasks = 0;
+        for (int id = 0; id < graph.size(); id++) {
+            if (!dirty[id]) {
+                continue;
+            }
+            Task task = graph.task(id);
+            if (execution.isCompleted(id)) {
+                executedTasks++;
+                states.put(task, current[id]);
+                results.put(task, execution.result(id));
+            } else {
+                states.remove(task);
+                results.remove(task);
+            }
+        }
+    }
+
+    private static Set<Task> dependencies(TaskGraph graph, int id) {
+        Set<Task> dependencies = new HashSet<>();
+        for (int i = graph.dependenciesFrom(id), to = graph.dependenciesTo(id); i < to; i++) {
+            dependencies.add(graph.task(graph.dependency(i)));
+        }
+        return dependencies;
+    }
+
+    // Fingerprint and dependencies of a task, as of the run, which completed it
+    private static final class State {
+        private final Object fingerprint;
+        private final Set<Task> dependencies;
+
+        State(Object fingerprint, Set<Task> dependencies) {
+            this.fingerprint = fingerprint;
+            this.dependencies = dependencies;
+        }
+
+        // Whether task is unchanged since the previous state. Task without a fingerprint always changes.
+        boolean matches(State previous) {
+            return previous != null && fingerprint != null && fingerprint.equals(previous.fingerprint)
+                    && dependencies.equals(previous.dependencies);
+        }
+    }
+}
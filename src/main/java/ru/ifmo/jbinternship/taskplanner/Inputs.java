@@ -0,0 +1,84 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Results of dependencies of a {@link ResultTask}, in the order of {@link Task#dependencies()}.
+ * <p>
+ * Dependencies, which are not result tasks, have {@code null} results.
+ *
+ * @author Daniil Boger
+ */
+public final class Inputs {
+    private final Object[] results;
+    // Graph of the run, or null if inputs are collected from dependencies directly
+    private final TaskGraph graph;
+    private final Task[] dependencies;
+    private final int from;
+    private final int to;
+
+    Inputs(Object[] results, TaskGraph graph, int id) {
+        this.results = results;
+        this.graph = graph;
+        this.dependencies = null;
+        this.from = graph.dependenciesFrom(id);
+        this.to = graph.dependenciesTo(id);
+    }
+
+    Inputs(Task[] dependencies, Object[] results) {
+        this.results = results;
+        this.graph = null;
+        this.dependencies = dependencies;
+        this.from = 0;
+        this.to = dependencies.length;
+    }
+
+    /**
+     * Returns number of dependencies.
+     *
+     * @return number of inputs
+     */
+    public int size() {
+        return to - from;
+    }
+
+    /**
+     * Returns result of dependency with given index.
+     *
+     * @param index index of dependency in {@link Task#dependencies()}
+     * @param <R>   type of the result
+     * @return result of dependency
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("No input with index " + index);
+        }
+        return (R) results[graph == null ? index : graph.dependency(from + index)];
+    }
+
+    /**
+     * Returns result of given dependency. Dependencies are compared with {@link Object#equals(Object)}, as tasks
+     * of a graph.
+     *
+     * @param dependency one of dependencies of the task
+     * @param <R>        type of the result
+     * @return result of dependency
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(ResultTask<R> dependency) {
+        if (graph == null) {
+            for (int i = from; i < to; i++) {
+                if (dependencies[i].equals(dependency)) {
+                    return (R) results[i];
+                }
+            }
+        } else {
+            int id = graph.indexOf(dependency);
+            for (int i = from; i < to; i++) {
+                if (graph.dependency(i) == id) {
+                    return (R) results[id];
+                }
+            }
+        }
+        throw new IllegalArgumentException("Task is not a dependency");
+    }
+}
@@ -0,0 +1,41 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unbounded FIFO queue of task ids, for tasks, which may be offered more than once per run:
+ * retries and tasks resumed after waiting for resources. Such tasks are rare, so ids are simply boxed.
+ * Dynamic runs keep all of their ready tasks here, as their size is not known in advance.
+ */
+final class LinkedReadyQueue implements ReadyQueue {
+    private final Queue<Integer> ids = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Override
+    public void offer(int id) {
+        ids.offer(id);
+        size.incrementAndGet();
+    }
+
+    @Override
+    public int poll() {
+        Integer id = ids.poll();
+        if (id == null) {
+            return -1;
+        }
+        size.decrementAndGet();
+        return id;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, size.get());
+    }
+}
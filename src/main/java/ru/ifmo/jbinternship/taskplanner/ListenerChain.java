@@ -0,0 +1,52 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Listener, which passes every event to several listeners in the order they were added.
+ */
+final class ListenerChain implements ExecutionListener {
+    private final ExecutionListener[] listeners;
+
+    private ListenerChain(ExecutionListener[] listeners) {
+        this.listeners = listeners;
+    }
+
+    /**
+     * Returns listener, which calls the first listener and then the second one.
+     *
+     * @param first  listener set before, or {@code null}
+     * @param second added listener
+     */
+    static ExecutionListener append(ExecutionListener first, ExecutionListener second) {
+        if (first == null) {
+            return second;
+        }
+        ExecutionListener[] previous = first instanceof ListenerChain
+                ? ((ListenerChain) first).listeners
+                : new ExecutionListener[]{first};
+        ExecutionListener[] listeners = new ExecutionListener[previous.length + 1];
+        System.arraycopy(previous, 0, listeners, 0, previous.length);
+        listeners[previous.length] = second;
+        return new ListenerChain(listeners);
+    }
+
+    @Override
+    public void taskReady(Task task, long nanoTime) {
+        for (final ExecutionListener listener : listeners) {
+            listener.taskReady(task, nanoTime);
+        }
+    }
+
+    @Override
+    public void taskStarted(Task task, long workerId, long nanoTime) {
+        for (final ExecutionListener listener : listeners) {
+            listener.taskStarted(task, workerId, nanoTime);
+        }
+    }
+
+    @Override
+    public void taskFinished(Task task, long workerId, long nanoTime, Throwable failure) {
+        for (final ExecutionListener listener : listeners) {
+            listener.taskFinished(task, workerId, nanoTime, failure);
+        }
+    }
+}
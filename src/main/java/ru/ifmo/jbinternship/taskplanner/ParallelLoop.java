@@ -0,0 +1,99 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Loop over a range of indices, split into a fixed number of chunks run on a pool.
+ * <p>
+ * Calling thread runs the first chunk and then every chunk, which was not started by the pool yet, so the loop
+ * completes even if the pool is busy or rejects work. Chunk bounds depend only on length of the range and number
+ * of chunks, so consecutive loops over the same range split it the same way.
+ */
+final class ParallelLoop {
+    private final Executor pool;
+    private final int chunks;
+
+    /**
+     * Body of the loop, run once per chunk.
+     */
+    interface Body {
+        void run(int chunk, int from, int to) throws TaskExecutionException;
+    }
+
+    ParallelLoop(Executor pool, int chunks) {
+        this.pool = pool;
+        this.chunks = chunks;
+    }
+
+    int chunks() {
+        return chunks;
+    }
+
+    /**
+     * Runs body over {@code [0, length)} and waits for all chunks.
+     *
+     * @throws TaskExecutionException first exception thrown by the body
+     */
+    void run(int length, Body body) throws TaskExecutionException {
+        List<FutureTask<Void>> parts = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int current = chunk;
+            final int from = (int) ((long) length * chunk / chunks);
+            final int to = (int) ((long) length * (chunk + 1) / chunks);
+            parts.add(new FutureTask<>(() -> {
+                body.run(current, from, to);
+                return null;
+            }));
+        }
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            try {
+                pool.execute(parts.get(chunk));
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        // Running a started or finished part is a no-op
+        for (final FutureTask<Void> part : parts) {
+            part.run();
+        }
+        for (final FutureTask<Void> part : parts) {
+            join(part);
+        }
+    }
+
+    private static void join(FutureTask<Void> part) throws TaskExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    part.get();
+                    return;
+                } catch (InterruptedException e) {
+                    // Chunks are short and never blocked, so the interrupt is kept for later
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof TaskExecutionException) {
+                        throw (TaskExecutionException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
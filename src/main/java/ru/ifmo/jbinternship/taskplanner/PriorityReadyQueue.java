@@ -0,0 +1,73 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Ready queue, which returns task with the highest priority first. Ties are broken by lower id.
+ */
+final class PriorityReadyQueue implements ReadyQueue {
+    private final long[] priorities;
+    private final int[] heap;
+    private volatile int size;
+
+    PriorityReadyQueue(long[] priorities) {
+        this.priorities = priorities;
+        this.heap = new int[priorities.length];
+    }
+
+    @Override
+    public synchronized void offer(int id) {
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(id, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = id;
+        size++;
+    }
+
+    @Override
+    public int poll() {
+        if (size == 0) {
+            return -1;
+        }
+        synchronized (this) {
+            if (size == 0) {
+                return -1;
+            }
+            int result = heap[0];
+            int last = heap[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], last)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return result;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private boolean before(int a, int b) {
+        return priorities[a] > priorities[b] || priorities[a] == priorities[b] && a < b;
+    }
+}
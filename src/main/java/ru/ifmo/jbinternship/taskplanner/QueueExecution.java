@@ -0,0 +1,48 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Run, which keeps ready tasks in a run-local queue drained by {@link QueueWorkers}.
+ */
+final class QueueExecution extends Execution {
+    private final QueueWorkers workers;
+
+    QueueExecution(TaskGraph graph, ExecutionOptions options, Executor pool, int parallelism, WorkerTuner tuner) {
+        super(graph, options);
+        ReadyQueue ready;
+        if (options.schedulingPolicy == SchedulingPolicy.CRITICAL_PATH) {
+            ready = new PriorityReadyQueue(options.costs != null
+                    ? graph.bottomLevels(options.costs)
+                    : graph.bottomLevels());
+        } else {
+            ready = new FifoReadyQueue(graph.size());
+        }
+        this.workers = new QueueWorkers(this, pool, parallelism, tuner, ready);
+    }
+
+    @Override
+    int parallelism() {
+        return workers.parallelism();
+    }
+
+    @Override
+    void dispatch(int id) {
+        workers.offer(id);
+    }
+
+    @Override
+    void resume(int id) {
+        workers.resume(id);
+    }
+
+    @Override
+    void dispatched() {
+        workers.spawn();
+    }
+
+    @Override
+    void redispatch(int id) {
+        workers.redispatch(id);
+    }
+}
@@ -0,0 +1,139 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Workers of a run, which drain its run-local queues of ready tasks.
+ * <p>
+ * At most {@code parallelism} workers are submitted to the pool, and only while there are ready tasks.
+ * This way many runs with different thread counts can share one pool. With a {@link WorkerTuner}
+ * the number of workers is adjusted below {@code parallelism} during the run.
+ */
+final class QueueWorkers {
+    private final AbstractExecution execution;
+    private final Executor pool;
+    private final int parallelism;
+    // Null if number of workers is fixed
+    private final WorkerTuner tuner;
+    private final ReadyQueue ready;
+    // Tasks, which got their resources after waiting for them. Null if resources are not limited.
+    private final ReadyQueue acquired;
+    // Tasks, which are retried after failure. Their backoff has expired, so they go before newly ready tasks.
+    private final ReadyQueue retried = new LinkedReadyQueue();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    // Workers, which are going to poll the queue. No need to spawn more of them than there are ready tasks.
+    private final AtomicInteger searchingWorkers = new AtomicInteger();
+
+    QueueWorkers(AbstractExecution execution, Executor pool, int parallelism, WorkerTuner tuner, ReadyQueue ready) {
+        this.execution = execution;
+        this.pool = pool;
+        this.parallelism = parallelism;
+        this.tuner = tuner;
+        this.ready = ready;
+        // Retried task may wait for resources again
+        this.acquired = execution.options.resources != null ? new LinkedReadyQueue() : null;
+    }
+
+    int parallelism() {
+        return tuner != null ? tuner.limit() : parallelism;
+    }
+
+    /**
+     * Queues ready task. Workers are spawned for it by {@link #spawn()}.
+     */
+    void offer(int id) {
+        ready.offer(id);
+    }
+
+    void resume(int id) {
+        acquired.offer(id);
+        spawn();
+    }
+
+    void redispatch(int id) {
+        retried.offer(id);
+        spawn();
+    }
+
+    /**
+     * Spawns workers for queued tasks, if limits allow.
+     */
+    void spawn() {
+        while (searchingWorkers.get() < ready.size() + retried.size() + (acquired != null ? acquired.size() : 0)) {
+            int active = activeWorkers.get();
+            if (active >= parallelism()) {
+                return;
+            }
+            if (activeWorkers.compareAndSet(active, active + 1)) {
+                searchingWorkers.incrementAndGet();
+                try {
+                    pool.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    searchingWorkers.decrementAndGet();
+                    activeWorkers.decrementAndGet();
+                    execution.abort(e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        execution.enterWorker();
+        boolean counted = true;
+        int executed = 0;
+        try {
+            while (true) {
+                // Tasks, which already hold resources, go first, then retries, which have waited out their backoff
+                int task = acquired != null ? acquired.poll() : -1;
+                boolean resumed = task >= 0;
+                if (!resumed) {
+                    task = retried.poll();
+                }
+                if (task < 0) {
+                    task = ready.poll();
+                }
+                searchingWorkers.decrementAndGet();
+                if (task < 0) {
+                    break;
+                }
+                if (tuner != null && tuner.sample(executed++)) {
+                    long wall = System.nanoTime();
+                    long cpu = WorkerTuner.cpuTime();
+                    execution.runChain(resumed ? execution.runAcquired(task) : task);
+                    tuner.record(System.nanoTime() - wall, WorkerTuner.cpuTime() - cpu);
+                    spawn();
+                } else {
+                    execution.runChain(resumed ? execution.runAcquired(task) : task);
+                }
+                if (tuner != null && leaveAboveLimit()) {
+                    counted = false;
+                    break;
+                }
+                searchingWorkers.incrementAndGet();
+            }
+        } finally {
+            execution.leaveWorker();
+            if (counted) {
+                activeWorkers.decrementAndGet();
+            }
+        }
+        // Task could be offered after the last poll, but before this worker left.
+        spawn();
+    }
+
+    // Leaves, if there are more workers than tuner allows now
+    private boolean leaveAboveLimit() {
+        while (true) {
+            int active = activeWorkers.get();
+            if (active <= tuner.limit()) {
+                return false;
+            }
+            if (activeWorkers.compareAndSet(active, active - 1)) {
+                return true;
+            }
+        }
+    }
+}
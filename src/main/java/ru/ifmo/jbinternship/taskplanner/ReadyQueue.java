@@ -0,0 +1,21 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Queue of ids of tasks, which are ready to run. Unless stated otherwise, every task is offered at most once
+ * per run.
+ */
+interface ReadyQueue {
+    void offer(int id);
+
+    /**
+     * Returns next ready task id or {@code -1}, if queue is empty.
+     */
+    int poll();
+
+    boolean isEmpty();
+
+    /**
+     * Returns approximate number of tasks in the queue.
+     */
+    int size();
+}
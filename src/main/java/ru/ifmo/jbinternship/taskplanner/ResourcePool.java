@@ -0,0 +1,128 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limited resources, such as disk or memory, shared by all runs of an executor.
+ * <p>
+ * Task acquires amounts it declared in {@link Task#resources()} before it starts and releases them when it
+ * finishes. Task, which can not acquire them, waits in the pool without holding a working thread, and is
+ * resumed by the release, which frees enough. Waiting tasks are checked in arrival order, but a smaller task
+ * may pass ahead of one, which does not fit yet, so that resources are not left idle.
+ */
+final class ResourcePool {
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final long[] capacities;
+    // Guarded by this
+    private final long[] available;
+    private final List<Waiter> waiters = new LinkedList<>();
+
+    private static final class Waiter {
+        final long[] demand;
+        final Runnable resume;
+
+        Waiter(long[] demand, Runnable resume) {
+            this.demand = demand;
+            this.resume = resume;
+        }
+    }
+
+    ResourcePool(Map<String, Long> capacities) {
+        this.capacities = new long[capacities.size()];
+        for (final Map.Entry<String, Long> entry : capacities.entrySet()) {
+            int index = indices.size();
+            indices.put(entry.getKey(), index);
+            this.capacities[index] = entry.getValue();
+        }
+        this.available = this.capacities.clone();
+    }
+
+    /**
+     * Returns amounts of limited resources needed by the task, or {@code null} if it needs none.
+     * Resources, which are not limited, are ignored. Demand larger than capacity is reduced to capacity,
+     * so that such task runs when the resource is not used by others.
+     *
+     * @throws IllegalArgumentException if task declares negative amount
+     */
+    long[] demand(Task task) {
+        Map<String, Long> resources = task.resources();
+        if (resources.isEmpty()) {
+            return null;
+        }
+        long[] demand = null;
+        for (final Map.Entry<String, Long> entry : resources.entrySet()) {
+            long amount = entry.getValue();
+            if (amount < 0) {
+                throw new IllegalArgumentException("Negative amount of resource " + entry.getKey());
+            }
+            Integer index = indices.get(entry.getKey());
+            if (index == null || amount == 0) {
+                continue;
+            }
+            if (demand == null) {
+                demand = new long[capacities.length];
+            }
+            demand[index] = Math.min(amount, capacities[index]);
+        }
+        return demand;
+    }
+
+    /**
+     * Acquires resources, or registers a waiter to be resumed when they are acquired on its behalf.
+     *
+     * @param demand result of {@link #demand(Task)}
+     * @param resume called once resources are acquired for a waiting task, on the releasing thread
+     * @return {@code true} if resources were acquired immediately
+     */
+    synchronized boolean acquire(long[] demand, Runnable resume) {
+        if (tryTake(demand)) {
+            return true;
+        }
+        waiters.add(new Waiter(demand, resume));
+        return false;
+    }
+
+    /**
+     * Releases resources and resumes waiters, which fit now.
+     */
+    void release(long[] demand) {
+        List<Runnable> resumed = null;
+        synchronized (this) {
+            for (int i = 0; i < demand.length; i++) {
+                available[i] += demand[i];
+            }
+            for (Iterator<Waiter> iterator = waiters.iterator(); iterator.hasNext(); ) {
+                Waiter waiter = iterator.next();
+                if (tryTake(waiter.demand)) {
+                    iterator.remove();
+                    if (resumed == null) {
+                        resumed = new ArrayList<>();
+                    }
+                    resumed.add(waiter.resume);
+                }
+            }
+        }
+        if (resumed != null) {
+            for (final Runnable resume : resumed) {
+                resume.run();
+            }
+        }
+    }
+
+    private boolean tryTake(long[] demand) {
+        for (int i = 0; i < demand.length; i++) {
+            if (demand[i] > available[i]) {
+                return false;
+            }
+        }
+        for (int i = 0; i < demand.length; i++) {
+            available[i] -= demand[i];
+        }
+        return true;
+    }
+}
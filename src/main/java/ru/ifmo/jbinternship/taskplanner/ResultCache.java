@@ -0,0 +1,278 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed cache of {@link CacheableTask} results.
+ * <p>
+ * Every entry is a file in the cache directory, which is read and written through memory mapping.
+ * Total size of entries is bounded, least recently used entries are evicted first. Access times are
+ * kept in file modification times, so both entries and their order survive restarts.
+ * <p>
+ * Cache is best effort: entry, which can not be read, is dropped and counted as a miss,
+ * failure to store an entry is ignored.
+ *
+ * @author Daniil Boger
+ */
+public final class ResultCache {
+    private static final String SUFFIX = ".bin";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+    // Entries by key, in access order. Guarded by itself, as are files of the entries: every file is created,
+    // replaced or deleted together with its entry.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private ResultCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Opens cache in given directory, creating it if necessary.
+     *
+     * @param directory directory for cache entries
+     * @param maxBytes  maximal total size of entries
+     * @return opened cache
+     * @throws IOException if directory can not be created or read
+     */
+    public static ResultCache open(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        Files.createDirectories(directory);
+        ResultCache cache = new ResultCache(directory, maxBytes);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) stream::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    files.add(file);
+                } else if (name.endsWith(TEMPORARY_SUFFIX)) {
+                    // Left by a process, which died while writing an entry
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        Map<Path, FileTime> times = new HashMap<>();
+        for (final Path file : files) {
+            times.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(times::get));
+        for (final Path file : files) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            cache.entries.put(name.substring(0, name.length() - SUFFIX.length()), new Entry(size));
+            cache.totalBytes += size;
+        }
+        synchronized (cache.entries) {
+            cache.evict();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns number of lookups, which found an entry.
+     *
+     * @return number of hits
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns number of lookups, which found nothing.
+     *
+     * @return number of misses
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns total size of cache entries.
+     *
+     * @return size of entries in bytes
+     */
+    public long size() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    /**
+     * Derives key of cache entry from key of a task and entry keys of its dependencies.
+     */
+    static String entryKey(String taskKey, String[] dependencyKeys) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(taskKey.getBytes(StandardCharsets.UTF_8));
+            for (final String key : dependencyKeys) {
+                digest.update((byte) 0);
+                digest.update(key.getBytes(StandardCharsets.UTF_8));
+            }
+            StringBuilder result = new StringBuilder();
+            for (final byte b : digest.digest()) {
+                result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always supported", e);
+        }
+    }
+
+    /**
+     * Returns cached value, or {@code null} if there is none.
+     */
+    Object get(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        Path file = file(key);
+        Object value;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try (ObjectInputStream input = new ObjectInputStream(new ByteBufferInputStream(buffer))) {
+                value = input.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            // Entry may have been replaced or evicted meanwhile, then its successor is left alone
+            remove(key, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Entry was evicted after it was read, value is still valid
+        }
+        hits.incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Stores value, evicting least recently used entries if cache is too large.
+     */
+    void put(String key, Serializable value) {
+        Path file = file(key);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(value);
+            }
+            if (bytes.size() > maxBytes) {
+                return;
+            }
+            // Entry is published by atomic move, so readers never see it half-written. Contents are forced
+            // to disk first, otherwise a crash may leave the name pointing to a truncated or zeroed file.
+            Path temporary = Files.createTempFile(directory, key, TEMPORARY_SUFFIX);
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes.size());
+                    buffer.put(bytes.toByteArray());
+                    buffer.force();
+                    channel.force(true);
+                }
+                // Move and registration are one step for eviction, which could delete the file in between
+                synchronized (entries) {
+                    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                    Entry previous = entries.put(key, new Entry(bytes.size()));
+                    totalBytes += bytes.size() - (previous == null ? 0 : previous.size);
+                    evict();
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            // Entry is not stored, the previous one is left as it was
+        }
+    }
+
+    // Must be called with entries lock held
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue().size;
+            try {
+                Files.deleteIfExists(file(eldest.getKey()));
+            } catch (IOException e) {
+                // Entry is forgotten anyway, file is going to be overwritten or evicted after restart
+            }
+        }
+    }
+
+    // Removes the entry, if the key still maps to it
+    private void remove(String key, Entry entry) {
+        synchronized (entries) {
+            if (!entries.remove(key, entry)) {
+                return;
+            }
+            totalBytes -= entry.size;
+            try {
+                Files.deleteIfExists(file(key));
+            } catch (IOException e) {
+                // Nothing else to do
+            }
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    // Stored entry. Entries are compared by identity, so that an entry replaced by another one is not removed.
+    private static final class Entry {
+        final long size;
+
+        Entry(long size) {
+            this.size = size;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+    }
+}
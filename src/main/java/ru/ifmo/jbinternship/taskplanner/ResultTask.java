@@ -0,0 +1,30 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Task, which produces a result for its dependents.
+ * <p>
+ * Results of dependencies are passed to {@link #compute(Inputs)} by {@link TaskExecutor} directly,
+ * without any shared storage. Result of a task is released as soon as all of its dependents finished.
+ *
+ * @param <T> type of the result
+ * @author Daniil Boger
+ */
+public interface ResultTask<T> extends Task {
+    /**
+     * Computes result of the task.
+     *
+     * @param inputs results of dependencies
+     * @return result of the task
+     */
+    T compute(Inputs inputs);
+
+    /**
+     * Result tasks are run only by {@link TaskExecutor}, which provides their inputs.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    default void execute() {
+        throw new UnsupportedOperationException("Result task must be run by TaskExecutor");
+    }
+}
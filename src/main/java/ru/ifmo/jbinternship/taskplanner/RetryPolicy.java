@@ -0,0 +1,84 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * How many times a failed task is executed again, and how long it waits before each retry.
+ * <p>
+ * Backoff doubles after every retry, up to a limit. Waiting task does not hold a working thread:
+ * it is queued again when its backoff expires. Timeouts count as failures.
+ *
+ * @author Daniil Boger
+ * @see Task#retryPolicy()
+ */
+public final class RetryPolicy {
+    /**
+     * Policy without retries: first failure is final.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(0, Duration.ZERO, Duration.ZERO);
+
+    private final int maxRetries;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+
+    private RetryPolicy(int maxRetries, Duration backoff, Duration maxBackoff) {
+        this.maxRetries = maxRetries;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Creates policy with exponential backoff.
+     *
+     * @param maxRetries maximum number of retries
+     * @param backoff    delay before the first retry
+     * @param maxBackoff maximum delay before a retry
+     * @return retry policy
+     */
+    public static RetryPolicy exponential(int maxRetries, Duration backoff, Duration maxBackoff) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Number of retries must not be negative");
+        }
+        if (backoff.isNegative() || maxBackoff.compareTo(backoff) < 0) {
+            throw new IllegalArgumentException("Backoff must not be negative or exceed its maximum");
+        }
+        return new RetryPolicy(maxRetries, backoff, Objects.requireNonNull(maxBackoff));
+    }
+
+    /**
+     * Creates policy with exponential backoff limited by one minute.
+     *
+     * @param maxRetries maximum number of retries
+     * @param backoff    delay before the first retry
+     * @return retry policy
+     */
+    public static RetryPolicy exponential(int maxRetries, Duration backoff) {
+        return exponential(maxRetries, backoff, backoff.compareTo(Duration.ofMinutes(1)) > 0
+                ? backoff
+                : Duration.ofMinutes(1));
+    }
+
+    /**
+     * Returns maximum number of retries.
+     *
+     * @return maximum number of retries
+     */
+    public int maxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Returns delay before given retry.
+     *
+     * @param retry number of the retry, starting from {@code 1}
+     * @return delay before the retry
+     */
+    public Duration backoff(int retry) {
+        Duration delay = backoff;
+        for (int i = 1; i < retry && delay.compareTo(maxBackoff) < 0; i++) {
+            delay = delay.multipliedBy(2);
+        }
+        return delay.compareTo(maxBackoff) < 0 ? delay : maxBackoff;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+/**
+ * Defines the order, in which {@link TaskExecutor} runs tasks that are ready at the same time.
+ *
+ * @author Daniil Boger
+ */
+public enum SchedulingPolicy {
+    /**
+     * Tasks run in the order their dependencies were completed.
+     */
+    FIFO,
+    /**
+     * Task with the longest path to the end of the graph runs first. Path length is the sum of
+     * {@link Task#cost() costs} of its tasks, so long chains start early and don't leave the tail of the run
+     * single-threaded.
+     */
+    CRITICAL_PATH
+}
@@ -1,6 +1,9 @@
 package ru.ifmo.jbinternship.taskplanner;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Interface for tasks to be executed.
@@ -19,4 +22,66 @@ public interface Task {
      * @return collection of task dependencies
      */
     Collection<Task> dependencies();
+
+    /**
+     * Returns estimated cost of the task, in any units consistent among tasks of one graph.
+     * Used by {@link SchedulingPolicy#CRITICAL_PATH} scheduling. Default is {@code 1}.
+     *
+     * @return estimated cost of the task
+     */
+    default long cost() {
+        return 1;
+    }
+
+    /**
+     * Returns amounts of named resources, which task holds while running, e.g. {@code disk=1} or
+     * {@code memory=4L << 30}. Task is started only when executor has enough of every resource limited by
+     * {@link TaskExecutor.Builder#resource(String, long)}, other resources are ignored. Default is none.
+     *
+     * @return amounts of resources by name
+     */
+    default Map<String, Long> resources() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Returns time the task may run. Task, which runs longer, is interrupted and fails with
+     * {@link TaskTimeoutException}, or is retried according to its {@link #retryPolicy()}. Run does not wait
+     * for the interrupted task to stop, so the task should respond to interruption. Default is no timeout.
+     *
+     * @return maximum duration of one attempt, or {@code null} if it is not limited
+     */
+    default Duration timeout() {
+        return null;
+    }
+
+    /**
+     * Returns policy of retries after failures of the task, including timeouts. Default is
+     * {@link RetryPolicy#NONE}.
+     *
+     * @return retry policy
+     */
+    default RetryPolicy retryPolicy() {
+        return RetryPolicy.NONE;
+    }
+
+    /**
+     * Returns fingerprint of everything the task's output depends on, except its dependencies:
+     * configuration, input files and so on. Used by {@link IncrementalRunner} to find changed tasks.
+     * Default is {@code null}, which means that task is always considered changed.
+     *
+     * @return fingerprint comparable with {@link Object#equals(Object)}, or {@code null}
+     */
+    default Object fingerprint() {
+        return null;
+    }
+
+    /**
+     * Returns identifier of the task used in reports. Default is {@link Object#toString()}.
+     *
+     * @return task identifier
+     */
+    default String id() {
+        return toString();
+    }
 }
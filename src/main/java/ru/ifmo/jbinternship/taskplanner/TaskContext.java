@@ -0,0 +1,21 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.Collection;
+
+/**
+ * Context of a run started by {@link TaskExecutor#submitDynamic(Collection)}, which allows to add tasks to it.
+ *
+ * @author Daniil Boger
+ */
+public interface TaskContext {
+    /**
+     * Adds tasks to the run. Every dependency of a new task must be either a task of the run, finished or not,
+     * or one of the new tasks. New task becomes ready as soon as all of its dependencies complete.
+     *
+     * @param tasks tasks to add
+     * @throws IllegalArgumentException if tasks are already in the run, contain duplicates, unknown dependencies
+     *                                  or cycles
+     * @throws IllegalStateException    if run is already finished
+     */
+    void add(Collection<? extends Task> tasks);
+}
@@ -1,11 +1,36 @@
 package ru.ifmo.jbinternship.taskplanner;
 
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when tasks can not be executed or some of them failed.
+ * <p>
+ * First failure of a task is the cause of the exception, others are added as suppressed.
+ */
 public class TaskExecutionException extends Exception {
+    private final List<String> skippedTaskIds;
+
     public TaskExecutionException(final String message) {
         super(message);
+        this.skippedTaskIds = Collections.emptyList();
     }
 
     public TaskExecutionException(final String message, final Throwable e) {
+        this(message, e, Collections.emptyList());
+    }
+
+    public TaskExecutionException(final String message, final Throwable e, final List<String> skippedTaskIds) {
         super(message, e);
+        this.skippedTaskIds = Collections.unmodifiableList(skippedTaskIds);
+    }
+
+    /**
+     * Returns {@link Task#id() ids} of tasks, which were not completed because of the failure.
+     *
+     * @return ids of skipped tasks
+     */
+    public List<String> getSkippedTaskIds() {
+        return skippedTaskIds;
     }
 }
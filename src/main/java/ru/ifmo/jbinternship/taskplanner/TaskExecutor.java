@@ -1,18 +1,110 @@
 package ru.ifmo.jbinternship.taskplanner;
 
-import java.util.*;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Executes dependency graphs of {@link Task tasks} on a long-lived pool of worker threads.
+ * <p>
+ * Pool is created once and reused by all {@code execute} calls, so executor should be closed
+ * when it is not needed anymore. Pool passed from outside is not shut down on {@link #close()}.
+ */
+public class TaskExecutor implements AutoCloseable {
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final ExecutorService pool;
+    private final boolean ownsPool;
+    private final int defaultThreadsCount;
+    // Lower bound of adaptive number of workers, or 0 if number of workers is fixed
+    private final int minThreadsCount;
+    private final ExecutionEngine engine;
+    private final ExecutionOptions options;
+    // Work-stealing pool shared by all runs, created on first use. Guarded by this.
+    private ForkJoinPool forkJoinPool;
+
+    /**
+     * Creates executor, which uses all available processors by default.
+     */
+    public TaskExecutor() {
+        this(builder());
+    }
+
+    /**
+     * Creates executor with certain default number of threads.
+     *
+     * @param threadsCount number of working threads used by {@link #execute(Collection)}
+     */
+    public TaskExecutor(int threadsCount) {
+        this(builder().threads(threadsCount));
+    }
+
+    /**
+     * Creates executor, which owns a pool of threads produced by given factory.
+     *
+     * @param threadsCount  number of working threads used by {@link #execute(Collection)}
+     * @param threadFactory factory for working threads
+     */
+    public TaskExecutor(int threadsCount, ThreadFactory threadFactory) {
+        this(builder().threads(threadsCount).threadFactory(threadFactory));
+    }
+
+    /**
+     * Creates executor on top of an existing pool. Pool is not shut down by {@link #close()}.
+     *
+     * @param pool         pool to run tasks on
+     * @param threadsCount number of tasks run at once by {@link #execute(Collection)}
+     */
+    public TaskExecutor(ExecutorService pool, int threadsCount) {
+        this(builder().threads(threadsCount).pool(pool));
+    }
+
+    private TaskExecutor(Builder builder) {
+        if (builder.pool != null) {
+            this.pool = builder.pool;
+            this.ownsPool = false;
+        } else if (builder.engine == ExecutionEngine.VIRTUAL_THREADS) {
+            this.pool = Executors.newVirtualThreadPerTaskExecutor();
+            this.ownsPool = true;
+        } else {
+            ThreadFactory factory = builder.threadFactory != null ? builder.threadFactory : daemonThreadFactory();
+            this.pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), factory);
+            this.ownsPool = true;
+        }
+        this.minThreadsCount = builder.minThreadsCount;
+        this.defaultThreadsCount = builder.threadsCount > 0 ? builder.threadsCount
+                : builder.engine == ExecutionEngine.VIRTUAL_THREADS ? Integer.MAX_VALUE
+                : Runtime.getRuntime().availableProcessors();
+        this.engine = builder.engine;
+        this.options = new ExecutionOptions(builder.schedulingPolicy, builder.inlineContinuation,
+                builder.failurePolicy, builder.interruptOnFailure, builder.cache, builder.listener,
+                builder.resources.isEmpty() ? null : new ResourcePool(builder.resources), builder.costs,
+                new TaskTimer());
+    }
 
-public class TaskExecutor {
     /**
-     * Executes provided tasks concurrently with all available processors.
+     * Creates builder for configuring executor.
+     *
+     * @return new builder with default settings
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Executes provided tasks concurrently with default number of threads.
      *
      * @param tasks collection of tasks to execute
      * @throws TaskExecutionException if dependency graph contains cycles or provided task failed with exception
      */
     public void execute(Collection<Task> tasks) throws TaskExecutionException {
-        execute(tasks, Runtime.getRuntime().availableProcessors());
+        execute(tasks, defaultThreadsCount);
     }
 
     /**
@@ -23,103 +115,527 @@ public class TaskExecutor {
      * @throws TaskExecutionException if dependency graph contains cycles or provided task failed with exception
      */
     public void execute(Collection<Task> tasks, int threadsCount) throws TaskExecutionException {
-        // Initialize graph and pool
-        Set<Task> uniqueTasks = new HashSet<>(tasks);
-        if (uniqueTasks.size() != tasks.size()) {
-            throw new TaskExecutionException("Duplicate tasks are not allowed");
-        }
-        Map<Task, List<Task>> graph = buildGraph(uniqueTasks);
-        validateGraph(graph);
-        final ExecutorService pool = Executors.newFixedThreadPool(threadsCount);
-        List<Task> start = tasks.stream().filter(x -> x.dependencies().isEmpty()).collect(Collectors.toList());
+        execute(compile(tasks, threadsCount), threadsCount);
+    }
+
+    /**
+     * Executes only the targets and tasks they depend on, transitively, with default number of threads.
+     *
+     * @param tasks   collection of all tasks
+     * @param targets tasks, which have to be executed
+     * @throws TaskExecutionException if needed tasks contain duplicates, tasks not present in the collection
+     *                                or cycles, or needed task failed with exception
+     * @see TaskGraph#compile(Collection, Collection)
+     */
+    public void execute(Collection<Task> tasks, Collection<? extends Task> targets) throws TaskExecutionException {
+        execute(tasks, targets, defaultThreadsCount);
+    }
+
+    /**
+     * Executes only the targets and tasks they depend on, transitively, with certain number of threads.
+     * Other tasks are neither validated nor compiled, so the run starts as if the collection contained only
+     * the needed tasks.
+     *
+     * @param tasks        collection of all tasks
+     * @param targets      tasks, which have to be executed
+     * @param threadsCount number of working threads
+     * @throws TaskExecutionException if needed tasks contain duplicates, tasks not present in the collection
+     *                                or cycles, or needed task failed with exception
+     * @see TaskGraph#compile(Collection, Collection)
+     */
+    public void execute(Collection<Task> tasks, Collection<? extends Task> targets, int threadsCount)
+            throws TaskExecutionException {
+        execute(compile(TaskGraph.needed(tasks, targets), threadsCount), threadsCount);
+    }
+
+    /**
+     * Validates given tasks and compiles them into an execution plan on the pool of this executor, with as many
+     * threads as runs use by default, but no more than available processors.
+     *
+     * @param tasks collection of tasks
+     * @return compiled graph
+     * @throws TaskExecutionException if tasks contain duplicates, unknown dependencies or cycles
+     * @see TaskGraph#compile(Collection, Executor, int)
+     */
+    public TaskGraph compile(Collection<Task> tasks) throws TaskExecutionException {
+        return compile(tasks, defaultThreadsCount);
+    }
+
+    /**
+     * Validates and compiles only the targets and tasks they depend on, transitively, like
+     * {@link #compile(Collection)} does.
+     *
+     * @param tasks   collection of all tasks
+     * @param targets tasks, which have to be executed
+     * @return compiled graph of needed tasks
+     * @throws TaskExecutionException if needed tasks contain duplicates, tasks not present in the collection
+     *                                or cycles
+     * @see TaskGraph#compile(Collection, Collection)
+     */
+    public TaskGraph compile(Collection<Task> tasks, Collection<? extends Task> targets)
+            throws TaskExecutionException {
+        return compile(TaskGraph.needed(tasks, targets), defaultThreadsCount);
+    }
+
+    // Compilation is CPU-bound, so threads beyond processors would only wait for them.
+    private TaskGraph compile(Collection<Task> tasks, int threadsCount) throws TaskExecutionException {
+        if (threadsCount <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        return TaskGraph.compile(tasks, pool, Math.min(threadsCount, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Executes compiled graph concurrently with default number of threads.
+     *
+     * @param graph compiled graph to execute
+     * @throws TaskExecutionException if provided task failed with exception
+     */
+    public void execute(TaskGraph graph) throws TaskExecutionException {
+        execute(graph, defaultThreadsCount);
+    }
+
+    /**
+     * Executes compiled graph with certain number of threads. Same graph may be executed any number of times.
+     * Runs of {@link ExecutionEngine#WORK_STEALING} engine share one pool, which grows to the largest number of
+     * threads asked for and keeps it until {@link #close()}.
+     *
+     * @param graph        compiled graph to execute
+     * @param threadsCount number of working threads
+     * @throws TaskExecutionException if provided task failed with exception. First failure is the cause,
+     *                                others are suppressed, tasks left unfinished are listed by their ids.
+     */
+    public void execute(TaskGraph graph, int threadsCount) throws TaskExecutionException {
+        ExecutionHandle handle = submit(graph, threadsCount);
         try {
-            Map<Task, Integer> required = new ConcurrentHashMap<>();
-            for (final Task t : uniqueTasks) {
-                required.put(t, t.dependencies().size());
-            }
-            final Phaser phaser = new Phaser(1);
-            Set<Future<?>> submittedTasks = ConcurrentHashMap.newKeySet();
-            start.forEach(x -> submitTask(x, graph, submittedTasks, required, phaser, pool));
-            phaser.arriveAndAwaitAdvance();
-            for (final Future<?> checker : submittedTasks) {
-                // Invariant: All tasks are completed. This is for exception check only.
-                checker.get();
-            }
+            handle.await();
         } catch (InterruptedException e) {
+            handle.cancel();
             Thread.currentThread().interrupt();
-        } catch (ExecutionException e) {
-            throw new TaskExecutionException("Parallel processing failed", e);
-        } finally {
-            pool.shutdownNow();
         }
     }
 
-    private void submitTask(Task task, Map<Task, List<Task>> graph, Set<Future<?>> submittedTasks,
-                            Map<Task, Integer> required, Phaser phaser, ExecutorService pool) {
-        phaser.register();
-        Callable<Void> newTask = () -> {
-            try {
-                bfs(task, graph, submittedTasks, required, phaser, pool);
-            } finally {
-                phaser.arrive();
-            }
-            return null;
-        };
-        submittedTasks.add(pool.submit(newTask));
-    }
-
-    private void bfs(Task current, Map<Task, List<Task>> graph, Set<Future<?>> submittedTasks,
-                     Map<Task, Integer> required, Phaser phaser, ExecutorService pool) {
-        List<Task> edges = graph.get(current);
-        current.execute();
-        for (final Task edge : edges) {
-            Integer newValue = required.computeIfPresent(edge, (k, v) -> v - 1);
-            assert newValue != null;
-            if (newValue == 0) {
-                submitTask(edge, graph, submittedTasks, required, phaser, pool);
+    /**
+     * Executes compiled graph, resuming it from the journal. Tasks recorded in the journal by previous runs are
+     * considered done, tasks completed by this run are appended to it. Method returns when all of them are synced.
+     *
+     * @param graph        compiled graph to execute
+     * @param threadsCount number of working threads
+     * @param journal      opened journal of the graph
+     * @throws TaskExecutionException if ids of tasks are not unique, provided task failed with exception,
+     *                                or journal could not be written
+     * @see CompletionJournal
+     */
+    public void execute(TaskGraph graph, int threadsCount, CompletionJournal journal) throws TaskExecutionException {
+        ExecutionHandle handle = submit(graph, threadsCount, journal);
+        TaskExecutionException failure = null;
+        try {
+            handle.await();
+        } catch (TaskExecutionException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            handle.cancel();
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = new TaskExecutionException("Journal could not be written", e);
+            } else {
+                failure.addSuppressed(e);
             }
         }
+        if (failure != null) {
+            throw failure;
+        }
     }
 
-    // Constructs dependency graph
-    private Map<Task, List<Task>> buildGraph(final Set<Task> tasks) throws TaskExecutionException {
-        Map<Task, List<Task>> result = new HashMap<>();
-        for (final Task t : tasks) {
-            result.put(t, new ArrayList<>());
+    /**
+     * Starts execution of provided tasks with default number of threads and returns immediately.
+     *
+     * @param tasks collection of tasks to execute
+     * @return handle of the started run
+     * @throws TaskExecutionException if dependency graph contains duplicates, unknown dependencies or cycles
+     */
+    public ExecutionHandle submit(Collection<Task> tasks) throws TaskExecutionException {
+        return submit(compile(tasks), defaultThreadsCount);
+    }
+
+    /**
+     * Starts execution of compiled graph with certain number of threads and returns immediately.
+     *
+     * @param graph        compiled graph to execute
+     * @param threadsCount number of working threads
+     * @return handle of the started run
+     */
+    public ExecutionHandle submit(TaskGraph graph, int threadsCount) {
+        return submit(graph, threadsCount, null, null);
+    }
+
+    /**
+     * Starts execution of compiled graph, resuming it from the journal, and returns immediately.
+     * Completed tasks are written to the journal in the background, {@link CompletionJournal#sync()} waits for them.
+     *
+     * @param graph        compiled graph to execute
+     * @param threadsCount number of working threads
+     * @param journal      opened journal of the graph
+     * @return handle of the started run
+     * @throws TaskExecutionException if ids of tasks are not unique
+     * @see #execute(TaskGraph, int, CompletionJournal)
+     */
+    public ExecutionHandle submit(TaskGraph graph, int threadsCount, CompletionJournal journal)
+            throws TaskExecutionException {
+        if (threadsCount <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
         }
-        for (final Task t : tasks) {
-            for (final Task dep : t.dependencies()) {
-                List<Task> cur = result.get(dep);
-                if (cur == null) {
-                    throw new TaskExecutionException("One of tasks requires dependency, which is not present");
-                }
-                result.get(dep).add(t);
-            }
+        boolean[] done = journal.replay(graph);
+        Execution execution = createExecution(graph, threadsCount);
+        execution.journal(journal);
+        execution.start(done);
+        return new ExecutionHandle(execution);
+    }
+
+    /**
+     * Starts execution of provided tasks with default number of threads, which accepts new tasks while running.
+     *
+     * @param tasks initial tasks of the run
+     * @return handle of the started run
+     * @throws TaskExecutionException if tasks contain duplicates, unknown dependencies or cycles
+     * @see #submitDynamic(Collection, int)
+     */
+    public DynamicExecutionHandle submitDynamic(Collection<? extends Task> tasks) throws TaskExecutionException {
+        return submitDynamic(tasks, defaultThreadsCount);
+    }
+
+    /**
+     * Starts execution of provided tasks, which accepts new tasks while running. Tasks are added either
+     * by {@link DynamicTask dynamic tasks} of the run or through the returned handle, and become ready as soon as
+     * their dependencies complete. Run is finished when there are no ready or running tasks left.
+     * <p>
+     * Graph of such a run is not compiled, so it is always scheduled in FIFO order on the shared queue,
+     * and results of all result tasks are kept until the end of the run. Otherwise tasks are executed as in
+     * compiled runs, with limits of resources, timeouts, retries and the result cache.
+     *
+     * @param tasks        initial tasks of the run
+     * @param threadsCount number of working threads
+     * @return handle of the started run
+     * @throws TaskExecutionException if tasks contain duplicates, unknown dependencies or cycles
+     */
+    public DynamicExecutionHandle submitDynamic(Collection<? extends Task> tasks, int threadsCount)
+            throws TaskExecutionException {
+        return submitDynamic(tasks, threadsCount, null);
+    }
+
+    /**
+     * Starts execution of provided tasks, which accepts new tasks while running, resuming it from the journal.
+     * Tasks recorded in the journal by previous runs are considered done when they are added, tasks completed by
+     * this run are appended to it. Dynamic and result tasks are always executed again: the former add their
+     * tasks anew, results of the latter are not kept.
+     *
+     * @param tasks        initial tasks of the run
+     * @param threadsCount number of working threads
+     * @param journal      opened journal of the run, or {@code null}
+     * @return handle of the started run
+     * @throws TaskExecutionException if tasks contain duplicates, unknown dependencies or cycles, or journaled
+     *                                tasks don't have unique ids
+     * @see #submitDynamic(Collection, int)
+     */
+    public DynamicExecutionHandle submitDynamic(Collection<? extends Task> tasks, int threadsCount,
+                                         CompletionJournal journal) throws TaskExecutionException {
+        if (threadsCount <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
         }
-        return result;
+        DynamicExecution execution = new DynamicExecution(options, pool, threadsCount, tuner(threadsCount), journal);
+        try {
+            execution.start(tasks);
+        } catch (IllegalArgumentException e) {
+            throw new TaskExecutionException(e.getMessage());
+        }
+        return new DynamicExecutionHandle(execution);
     }
 
-    // Checks if given dependency graph contains unknown dependencies, cycles or self-loops.
-    private void validateGraph(final Map<Task, List<Task>> graph) throws TaskExecutionException {
-        Map<Task, Integer> visited = new HashMap<>();
-        for (final Task t : graph.keySet()) {
-            if (visited.getOrDefault(t, 0) == 0) {
-                validationDFS(graph, t, visited);
-            }
+    /**
+     * Starts execution, in which some tasks are done already.
+     *
+     * @param done    tasks, which are done before the run, or {@code null}
+     * @param results results of all tasks to be retained through the run, or {@code null} to release results early
+     */
+    ExecutionHandle submit(TaskGraph graph, int threadsCount, boolean[] done, Object[] results) {
+        if (threadsCount <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
         }
+        Execution execution = createExecution(graph, threadsCount);
+        if (results != null) {
+            execution.retainResults(results);
+        }
+        execution.start(done);
+        return new ExecutionHandle(execution);
+    }
+
+    int defaultThreadsCount() {
+        return defaultThreadsCount;
+    }
+
+    synchronized ForkJoinPool forkJoinPool() {
+        return forkJoinPool;
     }
 
-    private void validationDFS(Map<Task, List<Task>> graph, Task curVertex, Map<Task, Integer> visited) throws TaskExecutionException {
-        visited.put(curVertex, 1);
-        for (final Task edge : graph.get(curVertex)) {
-            int visitedState = visited.getOrDefault(edge, 0);
-            if (visitedState == 1) {
-                throw new TaskExecutionException("Dependency graph is not acyclic");
-            } else if (visitedState == 0) {
-                validationDFS(graph, edge, visited);
+    /**
+     * Shuts down pools created by this executor.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdownNow();
+        }
+        synchronized (this) {
+            if (forkJoinPool != null) {
+                forkJoinPool.shutdownNow();
             }
         }
-        visited.put(curVertex, 2);
+        options.timer.close();
     }
 
+    private Execution createExecution(TaskGraph graph, int threadsCount) {
+        if (engine == ExecutionEngine.WORK_STEALING) {
+            ForkJoinPool forkJoinPool = !ownsPool && pool instanceof ForkJoinPool
+                    ? (ForkJoinPool) pool
+                    : forkJoinPool(threadsCount);
+            return new WorkStealingExecution(graph, options, forkJoinPool, threadsCount);
+        }
+        return new QueueExecution(graph, options, pool, threadsCount, tuner(threadsCount));
+    }
+
+    // Returns tuner of a run on the shared queue, or null if number of its threads is fixed.
+    // CPU time of virtual threads is not measured, so their number is never tuned.
+    private WorkerTuner tuner(int threadsCount) {
+        return minThreadsCount > 0 && engine != ExecutionEngine.VIRTUAL_THREADS
+                ? new WorkerTuner(Math.min(minThreadsCount, threadsCount), threadsCount)
+                : null;
+    }
+
+    // Pool starts with the default number of threads and grows to the largest number asked for by a run.
+    // Idle workers of the pool are retired by the pool itself.
+    private synchronized ForkJoinPool forkJoinPool(int threadsCount) {
+        if (forkJoinPool == null) {
+            forkJoinPool = new ForkJoinPool(Math.max(defaultThreadsCount, threadsCount));
+        } else if (forkJoinPool.getParallelism() < threadsCount) {
+            forkJoinPool.setParallelism(threadsCount);
+        }
+        return forkJoinPool;
+    }
+
+    // Unclosed executor must not prevent JVM from exiting.
+    private static ThreadFactory daemonThreadFactory() {
+        final AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "taskplanner-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Builder of {@link TaskExecutor}.
+     */
+    public static final class Builder {
+        // Non-positive value means default for the engine
+        private int threadsCount;
+        private int minThreadsCount;
+        private ThreadFactory threadFactory;
+        private ExecutorService pool;
+        private ExecutionEngine engine = ExecutionEngine.SHARED_QUEUE;
+        private SchedulingPolicy schedulingPolicy = SchedulingPolicy.FIFO;
+        private boolean inlineContinuation;
+        private FailurePolicy failurePolicy = FailurePolicy.CONTINUE_INDEPENDENT;
+        private boolean interruptOnFailure;
+        private ResultCache cache;
+        private ExecutionListener listener;
+        private ToLongFunction<? super Task> costs;
+        private final Map<String, Long> resources = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets default number of working threads. Default is number of available processors,
+         * or no limit for {@link ExecutionEngine#VIRTUAL_THREADS} engine, for which it is a cap on tasks run at once.
+         *
+         * @param threadsCount number of working threads
+         * @return this builder
+         */
+        public Builder threads(int threadsCount) {
+            if (threadsCount <= 0) {
+                throw new IllegalArgumentException("Number of threads must be positive");
+            }
+            this.threadsCount = threadsCount;
+            return this;
+        }
+
+        /**
+         * Makes number of working threads adaptive. Number of threads of every run becomes the upper bound,
+         * and executor keeps as many workers as running tasks can keep busy: about one per processor for CPU-bound
+         * tasks, more for tasks, which spend time blocked, and fewer when there are not enough ready tasks.
+         * Default number of threads is set to the upper bound. Not used by {@link ExecutionEngine#WORK_STEALING}
+         * and {@link ExecutionEngine#VIRTUAL_THREADS} engines, and by runs, which accept new tasks.
+         *
+         * @param minThreadsCount lower bound of number of working threads
+         * @param maxThreadsCount upper bound of number of working threads for runs with default number of threads
+         * @return this builder
+         */
+        public Builder adaptiveThreads(int minThreadsCount, int maxThreadsCount) {
+            if (minThreadsCount <= 0 || maxThreadsCount < minThreadsCount) {
+                throw new IllegalArgumentException("Bounds of number of threads must be positive and ordered");
+            }
+            this.minThreadsCount = minThreadsCount;
+            this.threadsCount = maxThreadsCount;
+            return this;
+        }
+
+        /**
+         * Sets factory for threads of the pool owned by executor. By default threads are daemons.
+         * Not used by {@link ExecutionEngine#WORK_STEALING} and {@link ExecutionEngine#VIRTUAL_THREADS} engines.
+         *
+         * @param threadFactory factory for working threads
+         * @return this builder
+         */
+        public Builder threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = Objects.requireNonNull(threadFactory);
+            return this;
+        }
+
+        /**
+         * Sets external pool to run tasks on. Such pool is not shut down by {@link TaskExecutor#close()}.
+         * With {@link ExecutionEngine#WORK_STEALING} engine it is used only if it is a {@link ForkJoinPool}.
+         *
+         * @param pool pool to run tasks on
+         * @return this builder
+         */
+        public Builder pool(ExecutorService pool) {
+            this.pool = Objects.requireNonNull(pool);
+            return this;
+        }
+
+        /**
+         * Sets the way ready tasks are handed to working threads. Default is {@link ExecutionEngine#SHARED_QUEUE}.
+         *
+         * @param engine execution engine
+         * @return this builder
+         */
+        public Builder engine(ExecutionEngine engine) {
+            this.engine = Objects.requireNonNull(engine);
+            return this;
+        }
+
+        /**
+         * Sets order of ready tasks. Default is {@link SchedulingPolicy#FIFO}.
+         *
+         * @param schedulingPolicy scheduling policy
+         * @return this builder
+         */
+        public Builder scheduling(SchedulingPolicy schedulingPolicy) {
+            this.schedulingPolicy = Objects.requireNonNull(schedulingPolicy);
+            return this;
+        }
+
+        /**
+         * Sets whether worker, which completed a task, runs one of newly ready successors itself instead of
+         * passing it through the ready queue. Other successors are queued as usual. Disabled by default.
+         * <p>
+         * Inline successor bypasses {@link SchedulingPolicy scheduling policy}, but chains and narrow graphs
+         * run with almost no queue traffic.
+         *
+         * @param inlineContinuation {@code true} to run one ready successor inline
+         * @return this builder
+         */
+        public Builder inlineContinuation(boolean inlineContinuation) {
+            this.inlineContinuation = inlineContinuation;
+            return this;
+        }
+
+        /**
+         * Sets reaction to failed tasks. Default is {@link FailurePolicy#CONTINUE_INDEPENDENT}.
+         *
+         * @param failurePolicy failure policy
+         * @return this builder
+         */
+        public Builder failurePolicy(FailurePolicy failurePolicy) {
+            this.failurePolicy = Objects.requireNonNull(failurePolicy);
+            return this;
+        }
+
+        /**
+         * Sets whether running tasks are interrupted on failure with {@link FailurePolicy#FAIL_FAST} policy.
+         *
+         * @param interruptOnFailure {@code true} to interrupt running tasks
+         * @return this builder
+         */
+        public Builder interruptOnFailure(boolean interruptOnFailure) {
+            this.interruptOnFailure = interruptOnFailure;
+            return this;
+        }
+
+        /**
+         * Sets cache for results of {@link CacheableTask cacheable tasks}. By default nothing is cached.
+         *
+         * @param cache result cache
+         * @return this builder
+         */
+        public Builder cache(ResultCache cache) {
+            this.cache = Objects.requireNonNull(cache);
+            return this;
+        }
+
+        /**
+         * Adds listener of task events, e.g. {@link TraceRecorder}. By default there is none, and no events
+         * are produced at all. Several listeners receive every event in the order they were added.
+         *
+         * @param listener execution listener
+         * @return this builder
+         */
+        public Builder listener(ExecutionListener listener) {
+            this.listener = ListenerChain.append(this.listener, Objects.requireNonNull(listener));
+            return this;
+        }
+
+        /**
+         * Sets cost estimates used by {@link SchedulingPolicy#CRITICAL_PATH} scheduling instead of
+         * {@link Task#cost()}, e.g. durations learned by {@link DurationProfile#cost(Task)}. Estimates are taken
+         * once at the start of every run.
+         *
+         * @param costs estimated cost of a task
+         * @return this builder
+         */
+        public Builder costs(ToLongFunction<? super Task> costs) {
+            this.costs = Objects.requireNonNull(costs);
+            return this;
+        }
+
+        /**
+         * Limits total amount of a resource used by running tasks, see {@link Task#resources()}. Limits are shared
+         * by all runs of the executor. Tasks, which wait for resources, do not hold working threads, so other
+         * tasks keep running meanwhile. By default resources are not limited.
+         *
+         * @param name     name of the resource, e.g. {@code "disk"} or {@code "memory"}
+         * @param capacity total amount available to running tasks
+         * @return this builder
+         */
+        public Builder resource(String name, long capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Resource capacity must be positive");
+            }
+            resources.put(Objects.requireNonNull(name), capacity);
+            return this;
+        }
+
+        /**
+         * Creates configured executor.
+         *
+         * @return new executor
+         */
+        public TaskExecutor build() {
+            return new TaskExecutor(this);
+        }
+    }
 }
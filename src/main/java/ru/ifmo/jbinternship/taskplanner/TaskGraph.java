@@ -0,0 +1,688 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Validated dependency graph, frozen into an execution plan.
+ * <p>
+ * Tasks get dense integer ids in the order of the source collection. Successors of each task are stored
+ * in compressed sparse row form: successors of task {@code i} are {@code successors[offsets[i]..offsets[i + 1])}.
+ * Dependencies are stored the same way, in the order of {@link Task#dependencies()}.
+ * Graph is immutable, so it can be compiled once and executed any number of times.
+ * <p>
+ * Graph is kept in plain int arrays, including the lookup of ids by task, so it takes about 40 bytes per task
+ * besides tasks themselves, and a run adds about 10 more.
+ *
+ * @author Daniil Boger
+ */
+public final class TaskGraph {
+    // Smallest number of tasks handled by one thread of parallel compilation
+    private static final int GRAIN = 1 << 15;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Task[] tasks;
+    private final TaskIndex ids;
+    private final int[] offsets;
+    private final int[] successors;
+    private final int[] dependencyOffsets;
+    private final int[] dependencies;
+    private final int[] roots;
+    private final int[] order;
+    private final boolean producesResults;
+    private volatile long[] bottomLevels;
+
+    private TaskGraph(Task[] tasks, TaskIndex ids, int[] offsets, int[] successors,
+                      int[] dependencyOffsets, int[] dependencies, int[] roots, int[] order,
+                      boolean producesResults) {
+        this.tasks = tasks;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.successors = successors;
+        this.dependencyOffsets = dependencyOffsets;
+        this.dependencies = dependencies;
+        this.roots = roots;
+        this.order = order;
+        this.producesResults = producesResults;
+    }
+
+    /**
+     * Validates given tasks and compiles them into an execution plan.
+     *
+     * @param tasks collection of tasks
+     * @return compiled graph
+     * @throws TaskExecutionException if tasks contain duplicates, unknown dependencies, cycles or dynamic tasks.
+     *                                Message of cycles lists tasks of one cycle, each followed by its dependent.
+     */
+    public static TaskGraph compile(Collection<Task> tasks) throws TaskExecutionException {
+        final int n = tasks.size();
+        Task[] byId = tasks.toArray(new Task[0]);
+        TaskIndex ids = TaskIndex.of(byId);
+        if (ids == null) {
+            throw new TaskExecutionException("Duplicate tasks are not allowed");
+        }
+        // Resolve dependencies and count successors of every task, then fill successor rows
+        int[] dependencyOffsets = new int[n + 1];
+        boolean producesResults = false;
+        for (int i = 0; i < n; i++) {
+            checkStatic(byId[i]);
+            dependencyOffsets[i + 1] = dependencyOffsets[i] + byId[i].dependencies().size();
+            producesResults |= byId[i] instanceof ResultTask;
+        }
+        int[] dependencies = new int[dependencyOffsets[n]];
+        for (int i = 0; i < n; i++) {
+            int position = dependencyOffsets[i];
+            for (final Task dep : byId[i].dependencies()) {
+                int from = ids.get(dep);
+                if (from < 0) {
+                    throw new TaskExecutionException("One of tasks requires dependency, which is not present");
+                }
+                dependencies[position++] = from;
+            }
+        }
+        return build(byId, ids, dependencyOffsets, dependencies, producesResults);
+    }
+
+    // Dynamic task adds tasks to its run, so it can't be a part of a compiled graph
+    private static void checkStatic(Task task) throws TaskExecutionException {
+        if (task instanceof DynamicTask) {
+            throw new TaskExecutionException("Dynamic tasks must be run by TaskExecutor#submitDynamic: " + task.id());
+        }
+    }
+
+    /**
+     * Validates tasks needed by the targets and compiles them into an execution plan. Needed tasks are the targets
+     * and, transitively, their dependencies, in the order of the collection. Other tasks of the collection are
+     * neither validated nor indexed, and the graph does not refer to them.
+     *
+     * @param tasks   collection of all tasks
+     * @param targets tasks, which have to be executed
+     * @return compiled graph of needed tasks
+     * @throws TaskExecutionException if needed tasks contain duplicates, tasks not present in the collection
+     *                                or cycles
+     */
+    public static TaskGraph compile(Collection<Task> tasks, Collection<? extends Task> targets)
+            throws TaskExecutionException {
+        return compile(needed(tasks, targets));
+    }
+
+    // Walks dependencies from the targets, then keeps tasks of the collection, which were reached.
+    static List<Task> needed(Collection<Task> tasks, Collection<? extends Task> targets)
+            throws TaskExecutionException {
+        Set<Task> closure = new HashSet<>();
+        ArrayDeque<Task> stack = new ArrayDeque<>();
+        for (final Task target : targets) {
+            reach(target, closure, stack);
+        }
+        while (!stack.isEmpty()) {
+            for (final Task dep : stack.pop().dependencies()) {
+                reach(dep, closure, stack);
+            }
+        }
+        List<Task> needed = new ArrayList<>(closure.size());
+        for (final Task task : tasks) {
+            if (closure.contains(task)) {
+                needed.add(task);
+            }
+        }
+        // Duplicates are reported by compilation
+        if (needed.size() < closure.size()) {
+            throw new TaskExecutionException("One of targets or their dependencies is not present");
+        }
+        return needed;
+    }
+
+    private static void reach(Task task, Set<Task> closure, ArrayDeque<Task> stack) throws TaskExecutionException {
+        if (task == null) {
+            throw new TaskExecutionException("One of targets or their dependencies is not present");
+        }
+        if (closure.add(task)) {
+            stack.push(task);
+        }
+    }
+
+    /**
+     * Validates given tasks and compiles them into an execution plan, splitting the work between threads
+     * of the pool. Tasks are indexed, their dependencies are resolved and reversed, and the graph is sorted
+     * in chunks of at least tens of thousands of tasks, so small graphs are compiled on the calling thread.
+     * Calling thread takes part in the work, and runs chunks the pool did not start, so busy pool only slows
+     * compilation down. Compiled graph is the same as the one of {@link #compile(Collection)}.
+     *
+     * @param tasks       collection of tasks
+     * @param pool        pool to run chunks of work on
+     * @param parallelism maximum number of threads to compile with, including the calling one
+     * @return compiled graph
+     * @throws TaskExecutionException if tasks contain duplicates, unknown dependencies, cycles or dynamic tasks.
+     *                                Message of cycles lists tasks of one cycle, each followed by its dependent.
+     */
+    public static TaskGraph compile(Collection<Task> tasks, Executor pool, int parallelism)
+            throws TaskExecutionException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        int chunks = Math.min(parallelism, tasks.size() / GRAIN);
+        if (chunks <= 1) {
+            return compile(tasks);
+        }
+        ParallelLoop loop = new ParallelLoop(pool, chunks);
+        final int n = tasks.size();
+        Task[] byId = tasks.toArray(new Task[0]);
+        TaskIndex ids = TaskIndex.of(byId, loop);
+        if (ids == null) {
+            throw new TaskExecutionException("Duplicate tasks are not allowed");
+        }
+        int[] dependencyOffsets = new int[n + 1];
+        boolean[] resultTasks = new boolean[chunks];
+        loop.run(n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                checkStatic(byId[i]);
+                dependencyOffsets[i + 1] = byId[i].dependencies().size();
+                resultTasks[chunk] |= byId[i] instanceof ResultTask;
+            }
+        });
+        prefixSums(loop, dependencyOffsets);
+        int[] dependencies = new int[dependencyOffsets[n]];
+        loop.run(n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int position = dependencyOffsets[i];
+                for (final Task dep : byId[i].dependencies()) {
+                    int dependency = ids.get(dep);
+                    if (dependency < 0) {
+                        throw new TaskExecutionException("One of tasks requires dependency, which is not present");
+                    }
+                    dependencies[position++] = dependency;
+                }
+            }
+        });
+        boolean producesResults = false;
+        for (final boolean resultTask : resultTasks) {
+            producesResults |= resultTask;
+        }
+        return build(loop, byId, ids, dependencyOffsets, dependencies, producesResults);
+    }
+
+    // Replaces every element with the sum of elements up to it: sums of chunks first, then carries between them.
+    private static void prefixSums(ParallelLoop loop, int[] array) throws TaskExecutionException {
+        int[] carries = new int[loop.chunks()];
+        loop.run(array.length, (chunk, from, to) -> {
+            int sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += array[i];
+                array[i] = sum;
+            }
+            carries[chunk] = sum;
+        });
+        int carry = 0;
+        for (int chunk = 0; chunk < carries.length; chunk++) {
+            int sum = carries[chunk];
+            carries[chunk] = carry;
+            carry += sum;
+        }
+        loop.run(array.length, (chunk, from, to) -> {
+            int offset = carries[chunk];
+            if (offset != 0) {
+                for (int i = from; i < to; i++) {
+                    array[i] += offset;
+                }
+            }
+        });
+    }
+
+    // Parallel version of the build below. Counters shared between chunks are updated atomically, rows of
+    // successors are sorted afterwards to match the sequential build, and the graph is sorted level by level.
+    private static TaskGraph build(ParallelLoop loop, Task[] byId, TaskIndex ids, int[] dependencyOffsets,
+                                   int[] dependencies, boolean producesResults) throws TaskExecutionException {
+        final int n = byId.length;
+        final int chunks = loop.chunks();
+        int[] offsets = new int[n + 1];
+        int[] remaining = new int[n];
+        int[] rootCounts = new int[chunks];
+        loop.run(n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = dependencyOffsets[i]; j < dependencyOffsets[i + 1]; j++) {
+                    INTS.getAndAdd(offsets, dependencies[j] + 1, 1);
+                }
+                remaining[i] = dependencyOffsets[i + 1] - dependencyOffsets[i];
+                if (remaining[i] == 0) {
+                    rootCounts[chunk]++;
+                }
+            }
+        });
+        prefixSums(loop, offsets);
+        int[] successors = new int[dependencies.length];
+        int[] cursor = new int[n];
+        System.arraycopy(offsets, 0, cursor, 0, n);
+        loop.run(n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = dependencyOffsets[i]; j < dependencyOffsets[i + 1]; j++) {
+                    successors[(int) INTS.getAndAdd(cursor, dependencies[j], 1)] = i;
+                }
+            }
+        });
+        loop.run(n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (offsets[i + 1] - offsets[i] > 1) {
+                    Arrays.sort(successors, offsets[i], offsets[i + 1]);
+                }
+            }
+        });
+        // Roots in ascending order: every chunk writes its own ones after roots of previous chunks
+        int[] order = new int[n];
+        int rootsCount = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int count = rootCounts[chunk];
+            rootCounts[chunk] = rootsCount;
+            rootsCount += count;
+        }
+        loop.run(n, (chunk, from, to) -> {
+            int position = rootCounts[chunk];
+            for (int i = from; i < to; i++) {
+                if (remaining[i] == 0) {
+                    order[position++] = i;
+                }
+            }
+        });
+        int[] roots = Arrays.copyOf(order, rootsCount);
+        int tail = sortLevels(loop, order, rootsCount, offsets, successors, remaining);
+        if (tail != n) {
+            throw new TaskExecutionException("Dependency graph is not acyclic: "
+                    + describeCycle(byId, dependencyOffsets, dependencies, remaining));
+        }
+        return new TaskGraph(byId, ids, offsets, successors, dependencyOffsets, dependencies, roots, order,
+                producesResults);
+    }
+
+    // Kahn's algorithm one level at a time: tasks of a level are ready once the previous level is processed.
+    // Narrow levels, such as ones of long chains, are processed on the calling thread. Returns number of sorted tasks.
+    private static int sortLevels(ParallelLoop loop, int[] order, int tail, int[] offsets, int[] successors,
+                                  int[] remaining) throws TaskExecutionException {
+        AtomicInteger next = new AtomicInteger();
+        int head = 0;
+        while (head < tail) {
+            final int levelFrom = head;
+            final int levelTo = tail;
+            if (levelTo - levelFrom < GRAIN) {
+                for (; head < levelTo; head++) {
+                    int current = order[head];
+                    for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                        if (--remaining[successors[i]] == 0) {
+                            order[tail++] = successors[i];
+                        }
+                    }
+                }
+                continue;
+            }
+            next.set(levelTo);
+            loop.run(levelTo - levelFrom, (chunk, from, to) -> {
+                int[] buffer = new int[256];
+                int size = 0;
+                for (int k = levelFrom + from; k < levelFrom + to; k++) {
+                    int current = order[k];
+                    for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                        if ((int) INTS.getAndAdd(remaining, successors[i], -1) == 1) {
+                            if (size == buffer.length) {
+                                System.arraycopy(buffer, 0, order, next.getAndAdd(size), size);
+                                size = 0;
+                            }
+                            buffer[size++] = successors[i];
+                        }
+                    }
+                }
+                System.arraycopy(buffer, 0, order, next.getAndAdd(size), size);
+            });
+            head = levelTo;
+            tail = next.get();
+        }
+        return tail;
+    }
+
+    // Builds successor rows and topological order from resolved dependencies.
+    private static TaskGraph build(Task[] byId, TaskIndex ids, int[] dependencyOffsets, int[] dependencies,
+                                   boolean producesResults) throws TaskExecutionException {
+        final int n = byId.length;
+        int[] offsets = new int[n + 1];
+        int[] remaining = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = dependencyOffsets[i]; j < dependencyOffsets[i + 1]; j++) {
+                offsets[dependencies[j] + 1]++;
+            }
+            remaining[i] = dependencyOffsets[i + 1] - dependencyOffsets[i];
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] successors = new int[dependencies.length];
+        int[] cursor = new int[n];
+        System.arraycopy(offsets, 0, cursor, 0, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = dependencyOffsets[i]; j < dependencyOffsets[i + 1]; j++) {
+                successors[cursor[dependencies[j]]++] = i;
+            }
+        }
+        // Kahn's algorithm: roots are the initial ready set, order doubles as the queue.
+        int[] order = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (remaining[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        int[] roots = new int[tail];
+        System.arraycopy(order, 0, roots, 0, tail);
+        for (int head = 0; head < tail; head++) {
+            int current = order[head];
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                if (--remaining[successors[i]] == 0) {
+                    order[tail++] = successors[i];
+                }
+            }
+        }
+        if (tail != n) {
+            throw new TaskExecutionException("Dependency graph is not acyclic: "
+                    + describeCycle(byId, dependencyOffsets, dependencies, remaining));
+        }
+        return new TaskGraph(byId, ids, offsets, successors, dependencyOffsets, dependencies, roots, order,
+                producesResults);
+    }
+
+    // Every task left by Kahn's algorithm has an unfinished dependency, so walking them must loop.
+    private static String describeCycle(Task[] byId, int[] dependencyOffsets, int[] dependencies, int[] remaining) {
+        int[] step = new int[byId.length];
+        int[] path = new int[byId.length];
+        int current = 0;
+        while (remaining[current] == 0) {
+            current++;
+        }
+        int length = 0;
+        while (step[current] == 0) {
+            path[length] = current;
+            step[current] = ++length;
+            for (int i = dependencyOffsets[current]; i < dependencyOffsets[current + 1]; i++) {
+                if (remaining[dependencies[i]] != 0) {
+                    current = dependencies[i];
+                    break;
+                }
+            }
+        }
+        // Path goes from dependents to dependencies, report it in execution order.
+        StringBuilder cycle = new StringBuilder();
+        for (int i = length - 1; i >= step[current] - 1; i--) {
+            cycle.append(byId[path[i]].id()).append(" -> ");
+        }
+        return cycle.append(byId[path[length - 1]].id()).toString();
+    }
+
+    /**
+     * Merges small tasks into clusters, which are scheduled as one unit, to cut scheduling overhead
+     * of graphs with many tiny tasks.
+     * <p>
+     * Tasks are visited in topological order. Task joins the cluster of its dependencies, if all of them are
+     * in one cluster, which merges chains and fan-outs. Otherwise task joins a cluster of tasks with exactly
+     * the same dependencies, which merges independent siblings and roots. Neither step can create a cycle.
+     * Cluster grows until total {@link Task#cost() cost} of its members reaches given limit, and runs members
+     * one by one in topological order. If a member fails, the rest of the cluster is not run.
+     * <p>
+     * Result tasks, their dependencies and tasks, which declare {@link Task#resources() resources},
+     * a {@link Task#timeout() timeout} or a {@link Task#retryPolicy() retry policy}, are never merged.
+     * Clusters are reported by the id of their first member with the number of others.
+     *
+     * @param maxClusterCost maximal total cost of tasks in one cluster
+     * @return coarsened graph, which may be executed instead of this one
+     */
+    public TaskGraph coarsen(long maxClusterCost) {
+        if (maxClusterCost <= 0) {
+            throw new IllegalArgumentException("Cluster cost must be positive");
+        }
+        final int n = tasks.length;
+        boolean[] pinned = new boolean[n];
+        for (int id = 0; id < n; id++) {
+            if (tasks[id] instanceof ResultTask) {
+                pinned[id] = true;
+                for (int i = dependencyOffsets[id]; i < dependencyOffsets[id + 1]; i++) {
+                    pinned[dependencies[i]] = true;
+                }
+            } else if (!tasks[id].resources().isEmpty() || tasks[id].timeout() != null
+                    || tasks[id].retryPolicy().maxRetries() > 0) {
+                // Cluster runs its members as one task, so their own policies would be lost
+                pinned[id] = true;
+            }
+        }
+        int[] cluster = new int[n];
+        long[] clusterCosts = new long[n];
+        boolean[] closed = new boolean[n];
+        int clusters = 0;
+        // Open sibling clusters by their dependency clusters
+        Map<DependencyKey, Integer> siblings = new HashMap<>();
+        int[] scratch = new int[16];
+        for (final int id : order) {
+            long cost = tasks[id].cost();
+            int count = 0;
+            for (int i = dependencyOffsets[id]; i < dependencyOffsets[id + 1]; i++) {
+                if (count == scratch.length) {
+                    scratch = Arrays.copyOf(scratch, 2 * count);
+                }
+                scratch[count++] = cluster[dependencies[i]];
+            }
+            Arrays.sort(scratch, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || scratch[distinct - 1] != scratch[i]) {
+                    scratch[distinct++] = scratch[i];
+                }
+            }
+            int target = -1;
+            if (!pinned[id]) {
+                if (distinct == 1 && !closed[scratch[0]] && clusterCosts[scratch[0]] + cost <= maxClusterCost) {
+                    target = scratch[0];
+                } else {
+                    DependencyKey key = new DependencyKey(Arrays.copyOf(scratch, distinct));
+                    Integer sibling = siblings.get(key);
+                    if (sibling != null && clusterCosts[sibling] + cost <= maxClusterCost) {
+                        target = sibling;
+                    } else {
+                        target = clusters++;
+                        siblings.put(key, target);
+                    }
+                }
+            } else {
+                target = clusters++;
+                closed[target] = true;
+            }
+            cluster[id] = target;
+            clusterCosts[target] += cost;
+        }
+        // Members of every cluster, in topological order
+        int[] memberOffsets = new int[clusters + 1];
+        for (int id = 0; id < n; id++) {
+            memberOffsets[cluster[id] + 1]++;
+        }
+        for (int c = 0; c < clusters; c++) {
+            memberOffsets[c + 1] += memberOffsets[c];
+        }
+        int[] members = new int[n];
+        int[] cursor = Arrays.copyOf(memberOffsets, clusters);
+        for (final int id : order) {
+            members[cursor[cluster[id]]++] = id;
+        }
+        // Dependencies between clusters. Result tasks keep theirs in declaration order, they are all pinned.
+        int[] clusterDependencyOffsets = new int[clusters + 1];
+        int[] clusterDependencies = new int[dependencies.length];
+        int[] seen = new int[clusters];
+        Arrays.fill(seen, -1);
+        int size = 0;
+        for (int c = 0; c < clusters; c++) {
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int id = members[m];
+                boolean ordered = tasks[id] instanceof ResultTask;
+                for (int i = dependencyOffsets[id]; i < dependencyOffsets[id + 1]; i++) {
+                    int dependency = cluster[dependencies[i]];
+                    if (dependency != c && (ordered || seen[dependency] != c)) {
+                        seen[dependency] = c;
+                        clusterDependencies[size++] = dependency;
+                    }
+                }
+            }
+            clusterDependencyOffsets[c + 1] = size;
+        }
+        Task[] byCluster = new Task[clusters];
+        // Original tasks are found through their clusters, clusters of several tasks by themselves
+        Task[] keys = Arrays.copyOf(tasks, n + clusters);
+        int[] keyIds = Arrays.copyOf(cluster, n + clusters);
+        int keyCount = n;
+        for (int c = 0; c < clusters; c++) {
+            int from = memberOffsets[c];
+            int to = memberOffsets[c + 1];
+            if (to - from == 1) {
+                byCluster[c] = tasks[members[from]];
+            } else {
+                Task[] clusterMembers = new Task[to - from];
+                for (int m = from; m < to; m++) {
+                    clusterMembers[m - from] = tasks[members[m]];
+                }
+                byCluster[c] = new ClusterTask(clusterMembers, clusterCosts[c]);
+            }
+        }
+        for (int c = 0; c < clusters; c++) {
+            if (byCluster[c] instanceof ClusterTask) {
+                Task[] clusterDependencyTasks = new Task[clusterDependencyOffsets[c + 1] - clusterDependencyOffsets[c]];
+                for (int i = 0; i < clusterDependencyTasks.length; i++) {
+                    clusterDependencyTasks[i] = byCluster[clusterDependencies[clusterDependencyOffsets[c] + i]];
+                }
+                ((ClusterTask) byCluster[c]).setDependencies(clusterDependencyTasks);
+                keys[keyCount] = byCluster[c];
+                keyIds[keyCount++] = c;
+            }
+        }
+        TaskIndex ids = TaskIndex.of(Arrays.copyOf(keys, keyCount), Arrays.copyOf(keyIds, keyCount));
+        try {
+            return build(byCluster, ids, clusterDependencyOffsets, Arrays.copyOf(clusterDependencies, size),
+                    producesResults);
+        } catch (TaskExecutionException e) {
+            throw new AssertionError("Coarsening must not create cycles", e);
+        }
+    }
+
+    // Sorted distinct clusters of dependencies
+    private static final class DependencyKey {
+        private final int[] clusters;
+        private final int hash;
+
+        DependencyKey(int[] clusters) {
+            this.clusters = clusters;
+            this.hash = Arrays.hashCode(clusters);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof DependencyKey && Arrays.equals(clusters, ((DependencyKey) other).clusters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Returns number of tasks in the graph.
+     *
+     * @return number of tasks
+     */
+    public int size() {
+        return tasks.length;
+    }
+
+    Task task(int id) {
+        return tasks[id];
+    }
+
+    int successorsFrom(int id) {
+        return offsets[id];
+    }
+
+    int successorsTo(int id) {
+        return offsets[id + 1];
+    }
+
+    int successor(int position) {
+        return successors[position];
+    }
+
+    int dependencyCount(int id) {
+        return dependencyOffsets[id + 1] - dependencyOffsets[id];
+    }
+
+    int dependenciesFrom(int id) {
+        return dependencyOffsets[id];
+    }
+
+    int dependenciesTo(int id) {
+        return dependencyOffsets[id + 1];
+    }
+
+    int dependency(int position) {
+        return dependencies[position];
+    }
+
+    /**
+     * Returns id of the task, or {@code -1} if it is not in the graph.
+     */
+    int indexOf(Task task) {
+        return ids.get(task);
+    }
+
+    // Whether some of tasks are ResultTasks
+    boolean producesResults() {
+        return producesResults;
+    }
+
+    int[] roots() {
+        return roots;
+    }
+
+    /**
+     * Returns bottom level of every task: total cost of the most expensive path from the task to the end of graph.
+     * Computed on first call.
+     */
+    long[] bottomLevels() {
+        long[] result = bottomLevels;
+        if (result == null) {
+            result = bottomLevels(Task::cost);
+            bottomLevels = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns bottom levels of tasks for given cost estimates. Computed on every call.
+     */
+    long[] bottomLevels(ToLongFunction<? super Task> costs) {
+        long[] result = new long[tasks.length];
+        for (int k = order.length - 1; k >= 0; k--) {
+            int current = order[k];
+            long longest = 0;
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                longest = Math.max(longest, result[successors[i]]);
+            }
+            result[current] = longest + costs.applyAsLong(tasks[current]);
+        }
+        return result;
+    }
+
+    // Tasks in topological order: every task goes after all of its dependencies.
+    int[] order() {
+        return order;
+    }
+}
@@ -0,0 +1,131 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Lookup of task ids by task, for graphs of millions of tasks.
+ * <p>
+ * Open addressing table of plain ints: a slot holds position of the task in the key array plus one, zero marks
+ * an empty slot. Table is at most half full, so it takes 8 to 16 bytes per task instead of an entry object and
+ * a boxed id of a {@code HashMap}. Tasks are compared with {@link Object#equals(Object)}, as in hash collections.
+ */
+final class TaskIndex {
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Task[] keys;
+    // Id of every key, or null if ids are positions of keys
+    private final int[] values;
+    private final int[] slots;
+    private final int mask;
+
+    private TaskIndex(Task[] keys, int[] values) {
+        this.keys = keys;
+        this.values = values;
+        int capacity = Integer.highestOneBit(Math.max(2, keys.length) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Indexes tasks by their positions in the array.
+     *
+     * @return index, or {@code null} if array contains duplicates
+     */
+    static TaskIndex of(Task[] tasks) {
+        TaskIndex index = new TaskIndex(tasks, null);
+        for (int i = 0; i < tasks.length; i++) {
+            if (!index.insert(i)) {
+                return null;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Indexes tasks by their positions in the array, inserting chunks of them concurrently.
+     *
+     * @return index, or {@code null} if array contains duplicates
+     */
+    static TaskIndex of(Task[] tasks, ParallelLoop loop) throws TaskExecutionException {
+        TaskIndex index = new TaskIndex(tasks, null);
+        boolean[] duplicates = new boolean[loop.chunks()];
+        loop.run(tasks.length, (chunk, from, to) -> {
+            for (int i = from; i < to && !duplicates[chunk]; i++) {
+                duplicates[chunk] = !index.insertConcurrently(i);
+            }
+        });
+        for (final boolean duplicate : duplicates) {
+            if (duplicate) {
+                return null;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Indexes tasks by given ids. Duplicates are mapped to the first id.
+     */
+    static TaskIndex of(Task[] tasks, int[] ids) {
+        TaskIndex index = new TaskIndex(tasks, ids);
+        for (int i = 0; i < tasks.length; i++) {
+            index.insert(i);
+        }
+        return index;
+    }
+
+    private boolean insert(int position) {
+        Task key = keys[position];
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int occupant = slots[slot];
+            if (occupant == 0) {
+                slots[slot] = position + 1;
+                return true;
+            }
+            if (keys[occupant - 1].equals(key)) {
+                return false;
+            }
+        }
+    }
+
+    // Slot is claimed by CAS, so of two equal keys racing for it the second one sees the first.
+    private boolean insertConcurrently(int position) {
+        Task key = keys[position];
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int occupant = (int) SLOTS.getVolatile(slots, slot);
+            if (occupant == 0) {
+                if (SLOTS.compareAndSet(slots, slot, 0, position + 1)) {
+                    return true;
+                }
+                occupant = (int) SLOTS.getVolatile(slots, slot);
+            }
+            if (keys[occupant - 1].equals(key)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Returns id of the task, or {@code -1} if it is not indexed.
+     */
+    int get(Object task) {
+        if (task == null) {
+            return -1;
+        }
+        for (int slot = slot(task); ; slot = (slot + 1) & mask) {
+            int occupant = slots[slot];
+            if (occupant == 0) {
+                return -1;
+            }
+            if (keys[occupant - 1].equals(task)) {
+                return values == null ? occupant - 1 : values[occupant - 1];
+            }
+        }
+    }
+
+    // Identity hashes of neighbouring objects are poorly spread in low bits, so they are mixed first.
+    private int slot(Object task) {
+        int h = task.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.time.Duration;
+
+/**
+ * Failure of a task, which did not finish within its {@link Task#timeout() timeout}.
+ * <p>
+ * Thread of such task is interrupted, but run does not wait for it to stop.
+ *
+ * @author Daniil Boger
+ */
+public class TaskTimeoutException extends RuntimeException {
+    public TaskTimeoutException(final String taskId, final Duration timeout) {
+        super("Task " + taskId + " did not finish within " + timeout);
+    }
+}
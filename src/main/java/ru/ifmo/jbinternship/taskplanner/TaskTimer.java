@@ -0,0 +1,95 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer shared by all runs of an executor, which fires timeouts and retries of tasks.
+ * <p>
+ * One thread serves all tasks, so timeouts cost a heap entry instead of a watchdog thread each. Cancelled
+ * timeouts are removed at once, as almost all of them are. Thread is started on first use.
+ * <p>
+ * Actions, which must not be lost, are scheduled with a drop handler. Closing the timer runs handlers of
+ * such actions, which did not start yet, so runs waiting for them do not wait forever.
+ */
+final class TaskTimer {
+    // Guarded by this
+    private ScheduledThreadPoolExecutor scheduler;
+    private boolean closed;
+    // Actions with drop handlers, which did not start yet. Guarded by this
+    private final Set<Droppable> droppable = new HashSet<>();
+
+    /**
+     * Runs action on the timer thread after the delay.
+     *
+     * @throws RejectedExecutionException if executor is closed
+     */
+    synchronized ScheduledFuture<?> schedule(Runnable action, long delayNanos) {
+        if (closed) {
+            throw new RejectedExecutionException("Executor is closed");
+        }
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "taskplanner-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler.schedule(action, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs action on the timer thread after the delay. If timer is closed before that, runs drop handler
+     * on the closing thread instead. Exactly one of them is run.
+     *
+     * @throws RejectedExecutionException if executor is closed
+     */
+    synchronized void schedule(Runnable action, Runnable dropped, long delayNanos) {
+        Droppable entry = new Droppable(action, dropped);
+        schedule(entry, delayNanos);
+        droppable.add(entry);
+    }
+
+    void close() {
+        List<Droppable> dropped;
+        synchronized (this) {
+            closed = true;
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+            dropped = new ArrayList<>(droppable);
+            droppable.clear();
+        }
+        for (Droppable entry : dropped) {
+            entry.dropped.run();
+        }
+    }
+
+    private final class Droppable implements Runnable {
+        private final Runnable action;
+        private final Runnable dropped;
+
+        Droppable(Runnable action, Runnable dropped) {
+            this.action = action;
+            this.dropped = dropped;
+        }
+
+        @Override
+        public void run() {
+            synchronized (TaskTimer.this) {
+                if (!droppable.remove(this)) {
+                    // Dropped by close
+                    return;
+                }
+            }
+            action.run();
+        }
+    }
+}
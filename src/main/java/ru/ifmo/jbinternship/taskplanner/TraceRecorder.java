@@ -0,0 +1,198 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ExecutionListener}, which records timeline of task executions.
+ * <p>
+ * Timeline can be written in Chrome trace event format, viewable in {@code chrome://tracing} or Perfetto,
+ * and summarized with {@link #summary()}. Recorder keeps last event of every task, so it should be
+ * {@link #reset()} between runs.
+ *
+ * @author Daniil Boger
+ */
+public final class TraceRecorder implements ExecutionListener {
+    private final Map<Task, Span> spans = new ConcurrentHashMap<>();
+
+    // Timeline of one task. Each field is written by one thread, which happens-before the next writer.
+    private static final class Span {
+        volatile long ready;
+        volatile long start;
+        volatile long end;
+        volatile long worker;
+        volatile boolean failed;
+    }
+
+    @Override
+    public void taskReady(Task task, long nanoTime) {
+        Span span = new Span();
+        span.ready = nanoTime;
+        spans.put(task, span);
+    }
+
+    @Override
+    public void taskStarted(Task task, long workerId, long nanoTime) {
+        Span span = spans.computeIfAbsent(task, t -> {
+            // Recorder was reset after the task became ready, its queue wait is unknown
+            Span started = new Span();
+            started.ready = nanoTime;
+            return started;
+        });
+        span.worker = workerId;
+        span.start = nanoTime;
+    }
+
+    @Override
+    public void taskFinished(Task task, long workerId, long nanoTime, Throwable failure) {
+        Span span = spans.get(task);
+        if (span == null) {
+            // Recorder was reset after the task started
+            return;
+        }
+        span.failed = failure != null;
+        span.end = nanoTime;
+    }
+
+    /**
+     * Forgets all recorded events. Tasks of a run in progress, which started before, are not recorded at all.
+     */
+    public void reset() {
+        spans.clear();
+    }
+
+    /**
+     * Writes finished tasks as complete events of Chrome trace event format. Every worker is
+     * a separate thread of the trace, queue wait is stored in event arguments.
+     *
+     * @param out writer for the trace
+     * @throws IOException if writer fails
+     */
+    public void writeChromeTrace(Writer out) throws IOException {
+        List<Map.Entry<Task, Span>> finished = finished();
+        long origin = origin(finished);
+        out.write("{\"traceEvents\":[");
+        boolean first = true;
+        for (final Map.Entry<Task, Span> entry : finished) {
+            Span span = entry.getValue();
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write("\n{\"name\":");
+            writeString(out, entry.getKey().id());
+            out.write(",\"ph\":\"X\",\"pid\":1,\"tid\":" + span.worker
+                    + ",\"ts\":" + micros(span.start - origin)
+                    + ",\"dur\":" + micros(span.end - span.start)
+                    + ",\"args\":{\"queueWaitUs\":" + micros(span.start - span.ready)
+                    + ",\"failed\":" + span.failed + "}}");
+        }
+        out.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+        out.flush();
+    }
+
+    /**
+     * Writes trace to given file, see {@link #writeChromeTrace(Writer)}.
+     *
+     * @param file file for the trace
+     * @throws IOException if file can not be written
+     */
+    public void writeChromeTrace(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeChromeTrace(out);
+        }
+    }
+
+    /**
+     * Summarizes recorded timeline.
+     *
+     * @return summary of finished tasks
+     */
+    public TraceSummary summary() {
+        List<Map.Entry<Task, Span>> finished = finished();
+        long origin = origin(finished);
+        long makespan = 0;
+        long queueWait = 0;
+        Map<Long, Long> busy = new TreeMap<>();
+        Map.Entry<Task, Span> last = null;
+        for (final Map.Entry<Task, Span> entry : finished) {
+            Span span = entry.getValue();
+            makespan = Math.max(makespan, span.end - origin);
+            queueWait += span.start - span.ready;
+            busy.merge(span.worker, span.end - span.start, Long::sum);
+            if (last == null || span.end > last.getValue().end) {
+                last = entry;
+            }
+        }
+        Map<Long, Double> utilisation = new TreeMap<>();
+        for (final Map.Entry<Long, Long> entry : busy.entrySet()) {
+            utilisation.put(entry.getKey(), makespan == 0 ? 0 : (double) entry.getValue() / makespan);
+        }
+        // Critical path ends with the last finished task, and every task on it waited for
+        // its latest finished dependency.
+        List<String> criticalPath = new ArrayList<>();
+        long criticalPathNanos = 0;
+        for (Task task = last == null ? null : last.getKey(); task != null; ) {
+            Span span = spans.get(task);
+            criticalPath.add(task.id());
+            criticalPathNanos += span.end - span.start;
+            Task previous = null;
+            long previousEnd = Long.MIN_VALUE;
+            for (final Task dependency : task.dependencies()) {
+                Span candidate = spans.get(dependency);
+                if (candidate != null && candidate.end != 0 && candidate.end > previousEnd) {
+                    previous = dependency;
+                    previousEnd = candidate.end;
+                }
+            }
+            task = previous;
+        }
+        Collections.reverse(criticalPath);
+        return new TraceSummary(finished.size(), makespan, queueWait, criticalPath, criticalPathNanos, utilisation);
+    }
+
+    private List<Map.Entry<Task, Span>> finished() {
+        List<Map.Entry<Task, Span>> finished = new ArrayList<>();
+        for (final Map.Entry<Task, Span> entry : spans.entrySet()) {
+            if (entry.getValue().end != 0) {
+                finished.add(entry);
+            }
+        }
+        finished.sort(Comparator.comparingLong(entry -> entry.getValue().start));
+        return finished;
+    }
+
+    private static long origin(List<Map.Entry<Task, Span>> finished) {
+        long origin = Long.MAX_VALUE;
+        for (final Map.Entry<Task, Span> entry : finished) {
+            origin = Math.min(origin, entry.getValue().ready);
+        }
+        return origin;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,85 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Summary of a timeline recorded by {@link TraceRecorder}. All times are in nanoseconds.
+ *
+ * @author Daniil Boger
+ */
+public final class TraceSummary {
+    private final int tasks;
+    private final long makespan;
+    private final long queueWait;
+    private final List<String> criticalPath;
+    private final long criticalPathTime;
+    private final Map<Long, Double> utilisation;
+
+    TraceSummary(int tasks, long makespan, long queueWait, List<String> criticalPath,
+                 long criticalPathTime, Map<Long, Double> utilisation) {
+        this.tasks = tasks;
+        this.makespan = makespan;
+        this.queueWait = queueWait;
+        this.criticalPath = Collections.unmodifiableList(criticalPath);
+        this.criticalPathTime = criticalPathTime;
+        this.utilisation = Collections.unmodifiableMap(utilisation);
+    }
+
+    /**
+     * Returns number of finished tasks.
+     */
+    public int tasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns time from the first task becoming ready to the last task finishing.
+     */
+    public long makespan() {
+        return makespan;
+    }
+
+    /**
+     * Returns total time tasks spent ready, but not started.
+     */
+    public long totalQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * Returns ids of tasks on the critical path, from the first to the last one.
+     */
+    public List<String> criticalPath() {
+        return criticalPath;
+    }
+
+    /**
+     * Returns total execution time of tasks on the critical path.
+     */
+    public long criticalPathTime() {
+        return criticalPathTime;
+    }
+
+    /**
+     * Returns fraction of the makespan every worker was executing tasks, by worker id.
+     */
+    public Map<Long, Double> workerUtilisation() {
+        return utilisation;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "tasks: %d, makespan: %.3f ms, total queue wait: %.3f ms%n",
+                tasks, makespan / 1e6, queueWait / 1e6));
+        report.append(String.format(Locale.ROOT, "critical path (%d tasks, %.3f ms): %s%n",
+                criticalPath.size(), criticalPathTime / 1e6, String.join(" -> ", criticalPath)));
+        for (final Map.Entry<Long, Double> entry : utilisation.entrySet()) {
+            report.append(String.format(Locale.ROOT, "worker %d: %.1f%%%n", entry.getKey(), entry.getValue() * 100));
+        }
+        return report.toString();
+    }
+}
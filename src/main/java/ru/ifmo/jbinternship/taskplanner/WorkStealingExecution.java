@@ -0,0 +1,114 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run on a {@link ForkJoinPool}. Successors readied by a worker of the pool are pushed onto its own deque,
+ * so idle workers steal them instead of contending on one queue.
+ * <p>
+ * Run with fewer threads than the pool has keeps at most that many of its tasks in the pool at once.
+ * Others wait in a run-local queue until one of them finishes, so one pool serves runs of any number of threads.
+ */
+final class WorkStealingExecution extends Execution {
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    // Number of tasks, which may be put into the pool yet. Null if the run may use all workers of the pool.
+    private final AtomicInteger permits;
+    // Tasks waiting for a permit. Null if the run may use all workers of the pool.
+    private final Queue<TaskAction> waiting;
+
+    WorkStealingExecution(TaskGraph graph, ExecutionOptions options, ForkJoinPool pool, int threadsCount) {
+        super(graph, options);
+        this.pool = pool;
+        this.parallelism = Math.min(threadsCount, pool.getParallelism());
+        boolean limited = threadsCount < pool.getParallelism();
+        this.permits = limited ? new AtomicInteger(threadsCount) : null;
+        this.waiting = limited ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+    @Override
+    int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    void dispatch(int id) {
+        schedule(new TaskAction(id, false));
+    }
+
+    @Override
+    void resume(int id) {
+        schedule(new TaskAction(id, true));
+    }
+
+    private void schedule(TaskAction action) {
+        if (waiting == null) {
+            submit(action);
+        } else {
+            waiting.offer(action);
+            release();
+        }
+    }
+
+    // Puts waiting tasks into the pool, while there are permits for them.
+    // Both offer and return of a permit are followed by this check, so no task is left waiting for nothing.
+    private void release() {
+        while (!waiting.isEmpty()) {
+            int free = permits.get();
+            if (free == 0) {
+                return;
+            }
+            if (permits.compareAndSet(free, free - 1)) {
+                TaskAction action = waiting.poll();
+                if (action == null) {
+                    permits.incrementAndGet();
+                } else {
+                    submit(action);
+                }
+            }
+        }
+    }
+
+    private void submit(ForkJoinTask<?> task) {
+        if (ForkJoinTask.getPool() == pool) {
+            task.fork();
+        } else {
+            try {
+                pool.execute(task);
+            } catch (RejectedExecutionException e) {
+                abort(e);
+            }
+        }
+    }
+
+    private final class TaskAction extends RecursiveAction {
+        private final int id;
+        // Whether task already holds its resources
+        private final boolean acquired;
+
+        TaskAction(int id, boolean acquired) {
+            this.id = id;
+            this.acquired = acquired;
+        }
+
+        @Override
+        protected void compute() {
+            enterWorker();
+            try {
+                runChain(acquired ? runAcquired(id) : id);
+            } finally {
+                leaveWorker();
+                if (permits != null) {
+                    permits.incrementAndGet();
+                    release();
+                }
+            }
+        }
+    }
+}
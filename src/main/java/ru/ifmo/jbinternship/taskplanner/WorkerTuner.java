@@ -0,0 +1,77 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Limit on working threads of one run, adjusted between bounds while the run goes.
+ * <p>
+ * Workers of the run are spawned only while there are ready tasks, and leave as soon as they find none,
+ * so narrow phases use few of them anyway. Tuner decides how many may run at once: CPU-bound tasks need no more
+ * workers than processors, while tasks, which are blocked most of the time, leave processors idle and may
+ * run in larger numbers. Limit is the number of processors divided by the share of wall time, which sampled
+ * tasks spent on CPU. Workers above the limit leave after their current task.
+ */
+final class WorkerTuner {
+    // Every worker measures its first task and then tasks with this period, measurement costs a system call
+    private static final int SAMPLE_PERIOD = 8;
+    // Weight of a new sample in the smoothed share
+    private static final double SMOOTHING = 0.25;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final int processors;
+    private final boolean measured;
+    // Smoothed share of wall time spent on CPU, or -1 before the first sample. Guarded by this.
+    private double cpuShare = -1;
+    private volatile int limit;
+
+    WorkerTuner(int minWorkers, int maxWorkers) {
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.processors = Runtime.getRuntime().availableProcessors();
+        this.measured = THREADS.isCurrentThreadCpuTimeSupported();
+        this.limit = measured
+                ? Math.max(minWorkers, Math.min(maxWorkers, processors))
+                : maxWorkers;
+    }
+
+    /**
+     * Returns current number of workers allowed to run at once.
+     */
+    int limit() {
+        return limit;
+    }
+
+    /**
+     * Returns whether the task should be measured. Workers count their tasks themselves, so that they share
+     * nothing written per task.
+     *
+     * @param executed number of tasks the worker has executed before this one
+     */
+    boolean sample(int executed) {
+        return measured && executed % SAMPLE_PERIOD == 0;
+    }
+
+    /**
+     * Returns CPU time of the current thread, or {@code -1} if it is not measured.
+     */
+    static long cpuTime() {
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * Accounts wall and CPU time of a measured task.
+     */
+    synchronized void record(long wallNanos, long cpuNanos) {
+        if (wallNanos <= 0 || cpuNanos < 0) {
+            return;
+        }
+        double share = Math.min(1, (double) cpuNanos / wallNanos);
+        cpuShare = cpuShare < 0 ? share : cpuShare + (share - cpuShare) * SMOOTHING;
+        double workers = Math.ceil(processors / Math.max(cpuShare, 1.0 / maxWorkers));
+        limit = (int) Math.max(minWorkers, Math.min(maxWorkers, workers));
+    }
+}
@@ -0,0 +1,243 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.ifmo.jbinternship.taskplanner.tasks.EmptyTestTask;
+import ru.ifmo.jbinternship.taskplanner.tasks.FileTestTask;
+import ru.ifmo.jbinternship.taskplanner.tasks.NamedTestTask;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CompletionJournal}
+ */
+public class CompletionJournalTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Task> graph(Path directory, boolean fail) {
+        FileTestTask a = new FileTestTask(directory, "a", List.of(), false, false);
+        FileTestTask b = new FileTestTask(directory, "b", List.of(a), false, fail);
+        FileTestTask c = new FileTestTask(directory, "c", List.of(b), false, false);
+        FileTestTask d = new FileTestTask(directory, "d", List.of(a), false, false);
+        return List.of(a, b, c, d);
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        Path file = folder.getRoot().toPath().resolve("journal");
+        try (TaskExecutor executor = new TaskExecutor(2)) {
+            try (CompletionJournal journal = CompletionJournal.open(file)) {
+                assertTrue(journal.completed().isEmpty());
+                executor.execute(TaskGraph.compile(graph(directory, true)), 2, journal);
+                fail("Task b must fail");
+            } catch (TaskExecutionException e) {
+                assertEquals(List.of("c"), e.getSkippedTaskIds());
+            }
+            // Tasks, which already left their markers, would fail to create them again
+            try (CompletionJournal journal = CompletionJournal.open(file)) {
+                assertEquals(Set.of("a", "d"), journal.completed());
+                executor.execute(TaskGraph.compile(graph(directory, false)), 2, journal);
+            }
+            try (CompletionJournal journal = CompletionJournal.open(file)) {
+                assertEquals(Set.of("a", "b", "c", "d"), journal.completed());
+                executor.execute(TaskGraph.compile(graph(directory, false)), 2, journal);
+                journal.clear();
+                assertTrue(journal.completed().isEmpty());
+            }
+            try (CompletionJournal journal = CompletionJournal.open(file)) {
+                assertTrue(journal.completed().isEmpty());
+            }
+        }
+    }
+
+    // Adds the graph to its run
+    private static DynamicTask spawner(Path directory, boolean fail) {
+        return new DynamicTask() {
+            @Override
+            public void execute(TaskContext context) {
+                context.add(graph(directory, fail));
+            }
+
+            @Override
+            public Collection<Task> dependencies() {
+                return List.of();
+            }
+
+            @Override
+            public String id() {
+                return "spawner";
+            }
+        };
+    }
+
+    @Test
+    public void testDynamicResume() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        Path file = folder.getRoot().toPath().resolve("journal");
+        try (TaskExecutor executor = new TaskExecutor(2)) {
+            try (CompletionJournal journal = CompletionJournal.open(file)) {
+                executor.submitDynamic(List.of(spawner(directory, true)), 2, journal).await();
+                fail("Task b must fail");
+            } catch (TaskExecutionException e) {
+                assertEquals(List.of("c"), e.getSkippedTaskIds());
+            }
+            // Spawner runs again and adds the same tasks, journaled ones are not executed
+            try (CompletionJournal journal = CompletionJournal.open(file)) {
+                assertEquals(Set.of("spawner", "a", "d"), journal.completed());
+                ExecutionHandle handle = executor.submitDynamic(List.of(spawner(directory, false)), 2, journal);
+                handle.await();
+                assertEquals(3, handle.completed());
+                assertEquals(0, handle.pending());
+                journal.sync();
+            }
+            try (CompletionJournal journal = CompletionJournal.open(file)) {
+                assertEquals(Set.of("spawner", "a", "b", "c", "d"), journal.completed());
+            }
+        }
+    }
+
+    @Test
+    public void testTornRecord() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        Path file = folder.getRoot().toPath().resolve("journal");
+        try (TaskExecutor executor = new TaskExecutor(2);
+             CompletionJournal journal = CompletionJournal.open(file)) {
+            try {
+                executor.execute(TaskGraph.compile(graph(directory, true)), 2, journal);
+            } catch (TaskExecutionException e) {
+                // Expected
+            }
+        }
+        long length = Files.size(file);
+        // Crash in the middle of a record
+        Files.write(file, new byte[]{0, 0, 0, 5, 'b'}, StandardOpenOption.APPEND);
+        try (CompletionJournal journal = CompletionJournal.open(file)) {
+            assertEquals(Set.of("a", "d"), journal.completed());
+            assertEquals(length, Files.size(file));
+        }
+    }
+
+    @Test
+    public void testDuplicateIds() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        List<Task> tasks = List.of(new FileTestTask(directory, "a", List.of(), false, false),
+                new FileTestTask(directory, "a", List.of(), false, false));
+        try (TaskExecutor executor = new TaskExecutor(2);
+             CompletionJournal journal = CompletionJournal.open(folder.getRoot().toPath().resolve("journal"))) {
+            executor.execute(TaskGraph.compile(tasks), 2, journal);
+            fail("Duplicate ids must be rejected");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getMessage().contains("unique"));
+        }
+    }
+
+    private static ResultTask<Integer> result(String id, List<String> log) {
+        return new ResultTask<>() {
+            @Override
+            public Integer compute(Inputs inputs) {
+                synchronized (log) {
+                    log.add(id);
+                }
+                return 1;
+            }
+
+            @Override
+            public Collection<Task> dependencies() {
+                return List.of();
+            }
+
+            @Override
+            public String id() {
+                return id;
+            }
+        };
+    }
+
+    @Test
+    public void testResultTaskRerun() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        List<String> log = new ArrayList<>();
+        AtomicBoolean fail = new AtomicBoolean(true);
+        ResultTask<Integer> shared = result("shared", log);
+        Task done = new NamedTestTask("done", 0, List.of(shared), log);
+        Task failing = new NamedTestTask("failing", 0, List.of(shared), log) {
+            @Override
+            public void execute() {
+                super.execute();
+                if (fail.get()) {
+                    throw new IllegalStateException("Failure of failing");
+                }
+            }
+        };
+        List<Task> tasks = List.of(shared, done, failing);
+        try (TaskExecutor executor = new TaskExecutor(2)) {
+            try (CompletionJournal journal = CompletionJournal.open(file)) {
+                executor.execute(TaskGraph.compile(tasks), 2, journal);
+                fail("Task failing must fail");
+            } catch (TaskExecutionException e) {
+                // Expected
+            }
+            // Result of shared is lost, so it runs again for failing, but done must not
+            log.clear();
+            fail.set(false);
+            try (CompletionJournal journal = CompletionJournal.open(file)) {
+                assertEquals(Set.of("shared", "done"), journal.completed());
+                ExecutionHandle handle = executor.submit(TaskGraph.compile(tasks), 2, journal);
+                handle.await();
+                journal.sync();
+                assertEquals(Set.of("shared", "failing"), new HashSet<>(log));
+                assertEquals(2, log.size());
+                assertEquals(2, handle.completed());
+                assertEquals(0, handle.pending());
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultIds() throws Exception {
+        try (TaskExecutor executor = new TaskExecutor(2);
+             CompletionJournal journal = CompletionJournal.open(folder.getRoot().toPath().resolve("journal"))) {
+            executor.execute(TaskGraph.compile(List.of(new EmptyTestTask(List.of()))), 2, journal);
+            fail("Tasks without stable ids must be rejected");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getMessage().contains("override id()"));
+        }
+    }
+
+    private static Task numbered(int number, List<Task> dependencies) {
+        return new EmptyTestTask(dependencies) {
+            @Override
+            public String id() {
+                return Integer.toString(number);
+            }
+        };
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        final int graphSize = 200_000;
+        List<Task> tasks = new ArrayList<>(graphSize);
+        Random rng = new Random(1);
+        for (int i = 0; i < graphSize; i++) {
+            tasks.add(numbered(i, i == 0 ? List.of() : List.of(tasks.get(rng.nextInt(i)))));
+        }
+        TaskGraph graph = TaskGraph.compile(tasks);
+        Path file = folder.getRoot().toPath().resolve("journal");
+        try (TaskExecutor executor = new TaskExecutor(4);
+             CompletionJournal journal = CompletionJournal.open(file)) {
+            executor.execute(graph, 4, journal);
+        }
+        try (CompletionJournal journal = CompletionJournal.open(file)) {
+            assertEquals(graphSize, journal.completed().size());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.ifmo.jbinternship.taskplanner.tasks.CachedSumTestTask;
+import ru.ifmo.jbinternship.taskplanner.tasks.EmptyTestTask;
+import ru.ifmo.jbinternship.taskplanner.tasks.FileTestTask;
+import ru.ifmo.jbinternship.taskplanner.tasks.FlakyTestTask;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link DistributedExecutor} class
+ */
+public class DistributedExecutorTest {
+    private static final int GRAPH_SIZE = 300;
+
+    private static DistributedExecutor executor;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    private final Random rng = new Random();
+
+    @BeforeClass
+    public static void startWorkers() throws IOException {
+        executor = DistributedExecutor.builder().workers(3).threadsPerWorker(2).build();
+    }
+
+    @AfterClass
+    public static void stopWorkers() {
+        executor.close();
+    }
+
+    private List<FileTestTask> generate(Path directory, int crashing, int failing) {
+        List<FileTestTask> generated = new ArrayList<>();
+        for (int i = 0; i < GRAPH_SIZE; i++) {
+            List<Task> dependencies = new ArrayList<>();
+            for (int j = Math.max(0, i - 20); j < i; j++) {
+                if (rng.nextInt(10) == 0) {
+                    dependencies.add(generated.get(j));
+                }
+            }
+            generated.add(new FileTestTask(directory, "task" + i, dependencies, i == crashing, i == failing));
+        }
+        return generated;
+    }
+
+    @Test
+    public void testExecution() throws Exception {
+        List<FileTestTask> generated = generate(folder.getRoot().toPath(), -1, -1);
+        executor.execute(new ArrayList<>(generated));
+        for (final FileTestTask task : generated) {
+            assertTrue(Files.exists(task.marker()));
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final int failing = GRAPH_SIZE / 2;
+        List<FileTestTask> generated = generate(folder.getRoot().toPath(), -1, failing);
+        try {
+            executor.execute(new ArrayList<>(generated));
+            fail("Failure must be reported");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            // Only dependents of the failed task are skipped
+            for (int i = 0; i < GRAPH_SIZE; i++) {
+                FileTestTask task = generated.get(i);
+                assertEquals(i != failing && !e.getSkippedTaskIds().contains(task.id()), Files.exists(task.marker()));
+            }
+        }
+    }
+
+    @Test
+    public void testNotSerializable() {
+        List<Task> tasks = List.of(new EmptyTestTask(List.of()));
+        try {
+            executor.execute(tasks);
+            fail("Task, which is not serializable, must be rejected");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getMessage().startsWith("Task is not serializable"));
+        }
+    }
+
+    @Test
+    public void testTimeoutsAndRetries() {
+        List<Task> timed = List.of(new FlakyTestTask(List.of(), 0, false, Duration.ofSeconds(1), RetryPolicy.NONE,
+                new ArrayList<>()));
+        List<Task> retried = List.of(new FlakyTestTask(List.of(), 0, false, null,
+                RetryPolicy.exponential(1, Duration.ZERO), new ArrayList<>()));
+        try {
+            executor.execute(timed);
+            fail("Task with a timeout must be rejected");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getMessage().startsWith("Timeouts are not supported"));
+        }
+        try {
+            executor.execute(retried);
+            fail("Task with retries must be rejected");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getMessage().startsWith("Retries are not supported"));
+        }
+    }
+
+    @Test
+    public void testResultTasks() {
+        AtomicInteger computations = new AtomicInteger();
+        Task constant = new CachedSumTestTask(List.of(), 1, computations);
+        List<Task> tasks = List.of(constant, new CachedSumTestTask(List.of(constant), 2, computations));
+        try {
+            executor.execute(tasks);
+            fail("Result task must be rejected");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getMessage().startsWith("Result tasks are not supported"));
+        }
+        assertEquals(0, computations.get());
+    }
+
+    // Uses own workers, as one of them is killed
+    @Test
+    public void testWorkerDeath() throws Exception {
+        // Every reported task is started on the reporting worker first, also when it was resent
+        Map<Task, Long> startedOn = new HashMap<>();
+        List<Task> unexpected = new ArrayList<>();
+        ExecutionListener listener = new ExecutionListener() {
+            @Override
+            public synchronized void taskStarted(Task task, long workerId, long nanoTime) {
+                startedOn.put(task, workerId);
+            }
+
+            @Override
+            public synchronized void taskFinished(Task task, long workerId, long nanoTime, Throwable failure) {
+                if (!Long.valueOf(workerId).equals(startedOn.remove(task))) {
+                    unexpected.add(task);
+                }
+            }
+        };
+        try (DistributedExecutor dying = DistributedExecutor.builder().workers(2).listener(listener).build()) {
+            List<FileTestTask> generated = generate(folder.getRoot().toPath(), GRAPH_SIZE / 3, -1);
+            dying.execute(new ArrayList<>(generated));
+            for (final FileTestTask task : generated) {
+                assertTrue(Files.exists(task.marker()));
+            }
+            assertEquals(1, dying.aliveWorkers());
+        }
+        synchronized (listener) {
+            assertEquals(List.of(), unexpected);
+        }
+    }
+}
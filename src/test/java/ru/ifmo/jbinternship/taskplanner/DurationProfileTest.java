@@ -0,0 +1,107 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.ifmo.jbinternship.taskplanner.tasks.NamedTestTask;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link DurationProfile}
+ */
+public class DurationProfileTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> log = new ArrayList<>();
+
+    private List<Task> chain(int length, int millis) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            tasks.add(new NamedTestTask("chain" + i, millis, i == 0 ? List.of() : List.of(tasks.get(i - 1)), log));
+        }
+        return tasks;
+    }
+
+    private void profile(DurationProfile profile, List<Task> tasks, int threads) throws TaskExecutionException {
+        try (TaskExecutor executor = TaskExecutor.builder().threads(threads).listener(profile).build()) {
+            executor.execute(tasks);
+        }
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("profile");
+        try (DurationProfile profile = DurationProfile.open(file)) {
+            assertNull(profile.wallTime("chain0"));
+            profile(profile, chain(3, 50), 1);
+            profile(profile, chain(3, 50), 1);
+        }
+        long appended = Files.size(file);
+        try (DurationProfile profile = DurationProfile.open(file)) {
+            for (int i = 0; i < 3; i++) {
+                Duration wall = profile.wallTime("chain" + i);
+                assertTrue(wall.toMillis() >= 50 && wall.toMillis() < 500);
+                // Sleeping task hardly uses CPU
+                Duration cpu = profile.cpuTime("chain" + i);
+                assertTrue(cpu == null || cpu.compareTo(wall) < 0);
+            }
+            assertNull(profile.wallTime("chain3"));
+        }
+        assertEquals(appended / 2, Files.size(file));
+    }
+
+    @Test
+    public void testRemaining() throws Exception {
+        try (DurationProfile profile = DurationProfile.open(folder.getRoot().toPath().resolve("profile"));
+             TaskExecutor executor = TaskExecutor.builder().threads(2).listener(profile).build()) {
+            List<Task> chain = chain(3, 100);
+            executor.execute(chain, 1);
+            ExecutionHandle handle = executor.submit(TaskGraph.compile(chain(3, 100)), 1);
+            long chainEstimate = profile.remaining(handle).toMillis();
+            handle.await();
+            assertTrue("Predicted " + chainEstimate, chainEstimate > 150 && chainEstimate <= 400);
+            assertEquals(Duration.ZERO, profile.remaining(handle));
+
+            // Four independent tasks take two rounds on two threads
+            List<Task> independent = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                independent.add(new NamedTestTask("independent" + i, 100, List.of(), log));
+            }
+            executor.execute(independent, 2);
+            List<Task> again = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                again.add(new NamedTestTask("independent" + i, 100, List.of(), log));
+            }
+            handle = executor.submit(TaskGraph.compile(again), 2);
+            long independentEstimate = profile.remaining(handle).toMillis();
+            handle.await();
+            assertTrue("Predicted " + independentEstimate, independentEstimate > 120 && independentEstimate <= 300);
+        }
+    }
+
+    @Test
+    public void testCosts() throws Exception {
+        try (DurationProfile profile = DurationProfile.open(folder.getRoot().toPath().resolve("profile"))) {
+            List<Task> tasks = List.of(new NamedTestTask("short", 5, List.of(), log),
+                    new NamedTestTask("long", 60, List.of(), log));
+            profile(profile, tasks, 2);
+            assertTrue(profile.cost(tasks.get(1)) > profile.cost(tasks.get(0)));
+            // Unknown task is predicted to take the mean
+            long unknown = profile.cost(new NamedTestTask("unknown", 0, List.of(), log));
+            assertTrue(unknown > profile.cost(tasks.get(0)) && unknown < profile.cost(tasks.get(1)));
+            log.clear();
+            try (TaskExecutor executor = TaskExecutor.builder().threads(1)
+                    .scheduling(SchedulingPolicy.CRITICAL_PATH).costs(profile::cost).build()) {
+                executor.execute(tasks);
+            }
+            assertEquals(List.of("long", "short"), log);
+        }
+    }
+}
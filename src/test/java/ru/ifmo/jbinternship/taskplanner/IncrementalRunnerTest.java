@@ -0,0 +1,150 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import org.junit.Before;
+import org.junit.Test;
+import ru.ifmo.jbinternship.taskplanner.tasks.SumResultTestTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link IncrementalRunner} class
+ */
+public class IncrementalRunnerTest {
+    private static final int GRAPH_SIZE = 5000;
+
+    private final Random rng = new Random();
+    private final List<SumResultTestTask> generated = new ArrayList<>();
+    private final List<Task> tasks = new ArrayList<>();
+    private final int[] values = new int[GRAPH_SIZE];
+    private final List<List<Integer>> dependencies = new ArrayList<>();
+    private final IncrementalRunner runner = new IncrementalRunner(new TaskExecutor(4));
+
+    @Before
+    public void init() {
+        for (int i = 0; i < GRAPH_SIZE; i++) {
+            List<Task> taskDependencies = new ArrayList<>();
+            List<Integer> ids = new ArrayList<>();
+            // Short edges only, so that change of a task affects its neighbourhood
+            for (int j = Math.max(0, i - 50); j < i; j++) {
+                if (rng.nextInt(100) == 0) {
+                    taskDependencies.add(generated.get(j));
+                    ids.add(j);
+                }
+            }
+            values[i] = rng.nextInt(10);
+            generated.add(new SumResultTestTask(taskDependencies, values[i]));
+            dependencies.add(ids);
+        }
+        tasks.addAll(generated);
+    }
+
+    @Test
+    public void test01_unchanged() throws TaskExecutionException {
+        runner.execute(tasks);
+        assertEquals(GRAPH_SIZE, runner.executedTasks());
+        check();
+        runner.execute(tasks);
+        assertEquals(0, runner.executedTasks());
+        check();
+    }
+
+    @Test
+    public void test02_changedSources() throws TaskExecutionException {
+        runner.execute(tasks);
+        boolean[] dirty = new boolean[GRAPH_SIZE];
+        for (int k = 0; k < 3; k++) {
+            int changed = rng.nextInt(GRAPH_SIZE);
+            values[changed]++;
+            generated.get(changed).setValue(values[changed]);
+            dirty[changed] = true;
+        }
+        int expectedExecutions = 0;
+        for (int i = 0; i < GRAPH_SIZE; i++) {
+            for (final int dependency : dependencies.get(i)) {
+                dirty[i] |= dirty[dependency];
+            }
+            if (dirty[i]) {
+                expectedExecutions++;
+            }
+        }
+        runner.execute(tasks);
+        assertEquals(expectedExecutions, runner.executedTasks());
+        check();
+    }
+
+    @Test
+    public void test03_reset() throws TaskExecutionException {
+        runner.execute(tasks);
+        runner.reset();
+        runner.execute(tasks);
+        assertEquals(GRAPH_SIZE, runner.executedTasks());
+        check();
+    }
+
+    @Test
+    public void test04_changedDependencies() throws TaskExecutionException {
+        runner.execute(tasks);
+        // Fingerprint stays the same, but the task sums one more input
+        int changed = GRAPH_SIZE / 2;
+        int added = changed - 1;
+        while (dependencies.get(changed).contains(added)) {
+            added--;
+        }
+        generated.get(changed).dependencies().add(generated.get(added));
+        dependencies.get(changed).add(added);
+        runner.execute(tasks);
+        assertEquals(dependents(changed), runner.executedTasks());
+        check();
+
+        generated.get(changed).dependencies().remove(generated.get(added));
+        dependencies.get(changed).remove(Integer.valueOf(added));
+        runner.execute(tasks);
+        assertEquals(dependents(changed), runner.executedTasks());
+        check();
+    }
+
+    @Test
+    public void test05_targets() throws TaskExecutionException {
+        SumResultTestTask target = generated.get(GRAPH_SIZE - 1);
+        runner.execute(tasks, List.of(target));
+        int needed = runner.executedTasks();
+        assertEquals(TaskGraph.compile(tasks, List.of(target)).size(), needed);
+        // Needed tasks are not executed again by the full run
+        runner.execute(tasks);
+        assertEquals(GRAPH_SIZE - needed, runner.executedTasks());
+        check();
+        runner.execute(tasks, List.of(target));
+        assertEquals(0, runner.executedTasks());
+    }
+
+    // Number of tasks, which depend on the task transitively, including itself
+    private int dependents(int changed) {
+        boolean[] dirty = new boolean[GRAPH_SIZE];
+        dirty[changed] = true;
+        int count = 0;
+        for (int i = 0; i < GRAPH_SIZE; i++) {
+            for (final int dependency : dependencies.get(i)) {
+                dirty[i] |= dirty[dependency];
+            }
+            if (dirty[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void check() {
+        int[] expected = new int[GRAPH_SIZE];
+        for (int i = 0; i < GRAPH_SIZE; i++) {
+            expected[i] = values[i];
+            for (final int dependency : dependencies.get(i)) {
+                expected[i] += expected[dependency];
+            }
+            assertEquals(Integer.valueOf(expected[i]), runner.result(generated.get(i)));
+        }
+    }
+}
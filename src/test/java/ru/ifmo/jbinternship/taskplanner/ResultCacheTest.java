@@ -0,0 +1,152 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.ifmo.jbinternship.taskplanner.tasks.CachedSumTestTask;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ResultCache} class
+ */
+public class ResultCacheTest {
+    private static final int CHAIN_LENGTH = 100;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger computations = new AtomicInteger();
+    private final List<CachedSumTestTask> chain = new ArrayList<>();
+    private final List<Task> tasks = new ArrayList<>();
+    private Path directory;
+
+    @Before
+    public void init() {
+        directory = folder.getRoot().toPath().resolve("cache");
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            chain.add(new CachedSumTestTask(i == 0 ? List.of() : List.of(chain.get(i - 1)), i, computations));
+        }
+        tasks.addAll(chain);
+    }
+
+    @Test
+    public void test01_survivesRestart() throws Exception {
+        ResultCache cache = ResultCache.open(directory, 1 << 20);
+        assertEquals(sum(CHAIN_LENGTH), run(cache));
+        assertEquals(CHAIN_LENGTH, computations.get());
+        assertEquals(CHAIN_LENGTH, cache.misses());
+        // As if another process opened the same directory
+        ResultCache reopened = ResultCache.open(directory, 1 << 20);
+        computations.set(0);
+        assertEquals(sum(CHAIN_LENGTH), run(reopened));
+        assertEquals(0, computations.get());
+        assertEquals(CHAIN_LENGTH, reopened.hits());
+    }
+
+    @Test
+    public void test02_changedKey() throws Exception {
+        ResultCache cache = ResultCache.open(directory, 1 << 20);
+        run(cache);
+        computations.set(0);
+        chain.get(CHAIN_LENGTH / 2).setValue(-CHAIN_LENGTH / 2);
+        assertEquals(sum(CHAIN_LENGTH) - CHAIN_LENGTH, run(cache));
+        // Changed task and all of its dependents are recomputed
+        assertEquals(CHAIN_LENGTH / 2, computations.get());
+    }
+
+    @Test
+    public void test03_eviction() throws Exception {
+        final long limit = 4096;
+        ResultCache cache = ResultCache.open(directory, limit);
+        run(cache);
+        assertTrue(cache.size() <= limit);
+        assertTrue(cache.size() > 0);
+        ResultCache reopened = ResultCache.open(directory, limit);
+        assertEquals(cache.size(), reopened.size());
+        // Evicted entries are recomputed
+        computations.set(0);
+        assertEquals(sum(CHAIN_LENGTH), run(reopened));
+        assertTrue(computations.get() > 0);
+        assertTrue(reopened.size() <= limit);
+    }
+
+    @Test
+    public void test04_dynamicRun() throws Exception {
+        ResultCache cache = ResultCache.open(directory, 1 << 20);
+        run(cache);
+        computations.set(0);
+        try (TaskExecutor executor = TaskExecutor.builder().cache(cache).build()) {
+            ExecutionHandle handle = executor.submitDynamic(tasks);
+            handle.await();
+            assertEquals(sum(CHAIN_LENGTH), (int) handle.result(chain.get(CHAIN_LENGTH - 1)));
+        }
+        // Dynamic runs share entries with compiled ones
+        assertEquals(0, computations.get());
+    }
+
+    @Test
+    public void test05_concurrentAccess() throws Exception {
+        final long limit = 1024;
+        final int keys = 20;
+        ResultCache cache = ResultCache.open(directory, limit);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                Random random = new Random();
+                try {
+                    for (int i = 0; i < 2000; i++) {
+                        int key = random.nextInt(keys);
+                        if (random.nextBoolean()) {
+                            cache.put("key" + key, key);
+                        } else {
+                            Object value = cache.get("key" + key);
+                            assertTrue(value == null || value.equals(key));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), failures);
+        // Every remembered entry has its file and no file is left without an entry
+        long files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.mapToLong(file -> file.toFile().length()).sum();
+        }
+        assertEquals(files, cache.size());
+        assertTrue(cache.size() <= limit);
+        assertEquals(cache.size(), ResultCache.open(directory, limit).size());
+    }
+
+    private int run(ResultCache cache) throws TaskExecutionException, InterruptedException {
+        try (TaskExecutor executor = TaskExecutor.builder().cache(cache).build()) {
+            ExecutionHandle handle = executor.submit(tasks);
+            handle.await();
+            return handle.result(chain.get(CHAIN_LENGTH - 1));
+        }
+    }
+
+    private static int sum(int n) {
+        return n * (n - 1) / 2;
+    }
+}
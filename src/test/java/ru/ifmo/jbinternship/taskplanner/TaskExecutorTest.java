@@ -1,14 +1,27 @@
 package ru.ifmo.jbinternship.taskplanner;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.*;
 import org.junit.rules.ExpectedException;
 import org.junit.runners.MethodSorters;
 import ru.ifmo.jbinternship.taskplanner.tasks.*;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Unit tests for {@link TaskExecutor} class
@@ -217,6 +230,714 @@ public class TaskExecutorTest {
         burningTest(test.getAnswer(), 6, "Large random DAG sample");
     }
 
+    @Test
+    public void test18_reusedPool() throws Exception {
+        final int calls = 200;
+        final int graphSize = 50;
+        List<Thread> created = Collections.synchronizedList(new ArrayList<>());
+        tasks.addAll(generateConstDAG(graphSize, 0.1));
+        try (TaskExecutor shared = new TaskExecutor(8, r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            created.add(thread);
+            return thread;
+        })) {
+            for (int i = 0; i < calls; i++) {
+                shared.execute(tasks);
+            }
+            assertEquals(graphSize, resultCollector.size());
+            // Idle threads of previous calls run the next ones, new threads are started only when all are busy
+            assertTrue(created.size() < calls);
+        }
+        synchronized (created) {
+            for (final Thread thread : created) {
+                thread.join(10_000);
+                assertFalse(thread.isAlive());
+            }
+        }
+    }
+
+    @Test
+    public void test19_compiledGraphReuse() throws TaskExecutionException {
+        DAGTestPair test = generateDAG(300);
+        tasks.addAll(test.getTest());
+        TaskGraph graph = TaskGraph.compile(tasks);
+        // Runs keep their state apart from the graph, so every run starts afresh
+        for (int threads = 1; threads <= 8; threads++) {
+            resultCollector.clear();
+            executor.execute(graph, threads);
+            assertEquals(test.getAnswer(), resultCollector);
+        }
+    }
+
+    @Test
+    public void test20_longChain() throws TaskExecutionException {
+        final int length = 500_000;
+        Task previous = new ConstTestTask(List.of(), 1);
+        tasks.add(previous);
+        for (int i = 1; i < length; i++) {
+            previous = new XorTestTask(List.of(previous));
+            tasks.add(previous);
+        }
+        executor.execute(tasks, 4);
+        assertEquals(Integer.valueOf(1), resultCollector.get(previous));
+    }
+
+    @Test
+    public void test21_cycleReport() throws TaskExecutionException {
+        Task root = new ConstTestTask(List.of(), 0);
+        Task t1 = new ConstTestTask(new ArrayList<>(List.of(root)), 0);
+        Task t2 = new ConstTestTask(List.of(t1), 0);
+        Task t3 = new ConstTestTask(List.of(t2, root), 0);
+        Task tail = new ConstTestTask(List.of(t3), 0);
+        t1.dependencies().add(t3);
+        tasks.addAll(List.of(tail, t3, t2, t1, root));
+        testFailure(ACYCLIC_ERROR + ": " + t1 + " -> " + t2 + " -> " + t3 + " -> " + t1);
+    }
+
+    @Test
+    public void test22_aggregatedFailures() {
+        Task t1 = new ConstTestTask(List.of(), 2);
+        Task zero = new ConstTestTask(List.of(), 0);
+        Task fail1 = new DivisionTestTask(List.of(t1, zero));
+        Task fail2 = new DivisionTestTask(List.of(t1));
+        Task dependent = new XorTestTask(List.of(fail1, t1));
+        Task independent = new XorTestTask(List.of(t1, zero));
+        tasks.addAll(List.of(t1, zero, fail1, fail2, dependent, independent));
+        try {
+            executor.execute(tasks, 4);
+            Assert.fail("Execution must fail");
+        } catch (TaskExecutionException e) {
+            assertEquals(PROCESSING_ERROR, e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+            assertEquals(List.of(dependent.id()), e.getSkippedTaskIds());
+        }
+        assertEquals(Integer.valueOf(2), resultCollector.get(independent));
+    }
+
+    @Test
+    public void test23_failFast() {
+        Task fail = new DivisionTestTask(List.of());
+        tasks.add(fail);
+        for (int i = 0; i < 1000; i++) {
+            tasks.add(new BurningTestTask(List.of()));
+        }
+        try (TaskExecutor failFast = TaskExecutor.builder().failurePolicy(FailurePolicy.FAIL_FAST).build()) {
+            failFast.execute(tasks, 1);
+            Assert.fail("Execution must fail");
+        } catch (TaskExecutionException e) {
+            assertEquals(PROCESSING_ERROR, e.getMessage());
+            assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+            assertEquals(1000, e.getSkippedTaskIds().size());
+        }
+        assertEquals(0, resultCollector.size());
+    }
+
+    @Test
+    public void test24_criticalPathScheduling() throws TaskExecutionException {
+        List<String> log = new ArrayList<>();
+        Task leaf = new NamedTestTask("leaf", 0, List.of(), log);
+        Task head = new NamedTestTask("head", 0, List.of(), log);
+        Task tail = new NamedTestTask("tail", 0, List.of(head), log) {
+            @Override
+            public long cost() {
+                return 100;
+            }
+        };
+        tasks.addAll(List.of(leaf, head, tail));
+        TaskGraph graph = TaskGraph.compile(tasks);
+        for (final SchedulingPolicy policy : SchedulingPolicy.values()) {
+            log.clear();
+            try (TaskExecutor scheduled = TaskExecutor.builder().scheduling(policy).build()) {
+                scheduled.execute(graph, 1);
+            }
+            // Head of the longer path goes first, though it is after the leaf in the ready queue
+            assertEquals(policy == SchedulingPolicy.FIFO ? List.of("leaf", "head", "tail")
+                    : List.of("head", "tail", "leaf"), log);
+        }
+    }
+
+    @Test
+    public void test25_inlineContinuation() throws TaskExecutionException {
+        final int length = 1000;
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        Task previous = null;
+        for (int i = 0; i < length; i++) {
+            previous = new ConstTestTask(previous == null ? List.of() : List.of(previous), i) {
+                @Override
+                protected void executionImpl() {
+                    threads.add(Thread.currentThread());
+                }
+            };
+            tasks.add(previous);
+        }
+        TaskGraph chain = TaskGraph.compile(tasks);
+        for (final ExecutionEngine engine : List.of(ExecutionEngine.SHARED_QUEUE, ExecutionEngine.WORK_STEALING)) {
+            try (TaskExecutor inline = TaskExecutor.builder().engine(engine).inlineContinuation(true).build()) {
+                threads.clear();
+                inline.execute(chain, 4);
+                // Every successor continues on the thread of its dependency, never passing through the queue
+                assertEquals(1, threads.size());
+                assertEquals(Integer.valueOf(length - 1), resultCollector.get(previous));
+            }
+        }
+    }
+
+    @Test
+    public void test26_workStealing() throws Exception {
+        DAGTestPair test = generateDAG(300);
+        tasks.addAll(test.getTest());
+        try (TaskExecutor stealing = TaskExecutor.builder().engine(ExecutionEngine.WORK_STEALING).threads(4).build()) {
+            stealing.execute(tasks, 4);
+            assertEquals(test.getAnswer(), resultCollector);
+            ForkJoinPool pool = stealing.forkJoinPool();
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            List<Task> sleeping = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                sleeping.add(new LimitedTestTask(List.of(), 5, Map.of(), running, maxRunning));
+            }
+            // Runs with any number of threads share the pool, but don't run more tasks at once
+            for (int threads = 1; threads <= 8; threads++) {
+                maxRunning.set(0);
+                stealing.execute(sleeping, threads);
+                assertTrue(maxRunning.get() <= threads);
+                assertSame(pool, stealing.forkJoinPool());
+            }
+            assertEquals(8, pool.getParallelism());
+        }
+    }
+
+    @Test
+    public void test27_engineResults() throws TaskExecutionException {
+        DAGTestPair test = generateDAG(300);
+        tasks.addAll(test.getTest());
+        TaskGraph graph = TaskGraph.compile(tasks);
+        for (final ExecutionEngine engine : ExecutionEngine.values()) {
+            try (TaskExecutor engineExecutor = TaskExecutor.builder().engine(engine).threads(4).build()) {
+                for (int threads = 1; threads <= 4; threads *= 2) {
+                    resultCollector.clear();
+                    engineExecutor.execute(graph, threads);
+                    assertEquals(test.getAnswer(), resultCollector);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test28_virtualThreads() throws Exception {
+        final int layers = 4;
+        final int width = 25_000;
+        final int millis = 10;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Task> previous = List.of();
+        for (int i = 0; i < layers; i++) {
+            List<Task> layer = new ArrayList<>(width);
+            for (int j = 0; j < width; j++) {
+                layer.add(new LimitedTestTask(previous.isEmpty() ? List.of()
+                        : List.of(previous.get(rng.nextInt(previous.size()))), millis, Map.of(), running, maxRunning));
+            }
+            tasks.addAll(layer);
+            previous = layer;
+        }
+        try (TaskExecutor virtual = TaskExecutor.builder().engine(ExecutionEngine.VIRTUAL_THREADS).build()) {
+            long start = System.nanoTime();
+            virtual.execute(tasks);
+            long elapsed = System.nanoTime() - start;
+            assertEquals(layers * width, resultCollector.size());
+            // Sleeping takes 40 ms on the critical path, while a thread per processor would need 1000 s. in total
+            assertTrue(elapsed < Duration.ofSeconds(10).toNanos());
+            assertTrue(maxRunning.get() > 1000);
+            // Explicit number of threads caps tasks run at once
+            maxRunning.set(0);
+            virtual.execute(tasks.subList(0, 1000), 16);
+            assertTrue(maxRunning.get() <= 16);
+        }
+    }
+
+    @Test
+    public void test29_asyncSubmit() throws Exception {
+        final int graphs = 200;
+        final int graphSize = 50;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        AtomicInteger callbacks = new AtomicInteger();
+        for (int i = 0; i < graphs; i++) {
+            ExecutionHandle handle = executor.submit(generateConstDAG(graphSize, 0.1));
+            futures.add(handle.future().whenComplete((result, e) -> callbacks.incrementAndGet()));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).get();
+        assertEquals(graphs, callbacks.get());
+        assertEquals(graphs * graphSize, resultCollector.size());
+    }
+
+    @Test
+    public void test30_cancelSubmitted() throws Exception {
+        Task previous = new SleepingTestTask(List.of(), 50);
+        tasks.add(previous);
+        for (int i = 1; i < 10; i++) {
+            previous = new SleepingTestTask(List.of(previous), 50);
+            tasks.add(previous);
+        }
+        ExecutionHandle handle = executor.submit(tasks);
+        while (handle.completed() == 0) {
+            Thread.sleep(10);
+        }
+        assertTrue(handle.cancel());
+        assertTrue(handle.isDone());
+        try {
+            handle.await();
+            Assert.fail("Cancelled run must not complete normally");
+        } catch (CancellationException e) {
+            // Expected
+        }
+        Thread.sleep(100);
+        assertEquals(0, handle.running());
+        assertTrue(handle.pending() >= 7);
+        assertTrue(resultCollector.size() <= 3);
+    }
+
+    @Test
+    public void test31_typedResults() throws Exception {
+        final int graphSize = 2000;
+        List<SumResultTestTask> generated = new ArrayList<>();
+        int[] expected = new int[graphSize];
+        boolean[] hasDependents = new boolean[graphSize];
+        for (int i = 0; i < graphSize; i++) {
+            List<Task> dependencies = new ArrayList<>();
+            int value = rng.nextInt(10);
+            expected[i] = value;
+            for (int j = 0; j < i; j++) {
+                if (rng.nextInt(100) == 0) {
+                    dependencies.add(generated.get(j));
+                    expected[i] += expected[j];
+                    hasDependents[j] = true;
+                }
+            }
+            generated.add(new SumResultTestTask(dependencies, value));
+        }
+        tasks.addAll(generated);
+        ExecutionHandle handle = executor.submit(tasks);
+        handle.await();
+        for (int i = 0; i < graphSize; i++) {
+            Integer result = handle.result(generated.get(i));
+            if (hasDependents[i]) {
+                assertEquals("Consumed result must be released", null, result);
+            } else {
+                assertEquals(Integer.valueOf(expected[i]), result);
+            }
+        }
+        assertEquals(0, resultCollector.size());
+
+        // Dependency is looked up by an equal task, as in the graph
+        KeyedResultTestTask source = new KeyedResultTestTask("source", List.of(), 5, null);
+        KeyedResultTestTask consumer = new KeyedResultTestTask("consumer", List.of(source), 1,
+                new KeyedResultTestTask("source", List.of(), 0, null));
+        handle = executor.submit(List.of(source, consumer));
+        handle.await();
+        assertEquals(Integer.valueOf(6), handle.result(consumer));
+        handle = executor.submitDynamic(List.of(source, consumer));
+        handle.await();
+        assertEquals(Integer.valueOf(6), handle.result(consumer));
+    }
+
+    @Test
+    public void test32_dynamicTasks() throws Exception {
+        final int depth = 5;
+        final int fanOut = 3;
+        tasks.add(new SpawningTestTask(List.of(), depth, fanOut));
+        try {
+            TaskGraph.compile(tasks);
+            Assert.fail("Dynamic task must be rejected by compilation");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getMessage().startsWith("Dynamic tasks must be run by TaskExecutor#submitDynamic"));
+        }
+        ExecutionHandle handle = executor.submitDynamic(tasks, 4);
+        handle.await();
+        int expected = 0;
+        for (int level = 0, count = 1; level <= depth; level++, count *= fanOut + 1) {
+            expected += count;
+        }
+        assertEquals(expected, resultCollector.size());
+        assertEquals(expected, handle.completed());
+
+        // Tasks of dynamic runs are retried and timed out as in compiled runs
+        List<String> log = new ArrayList<>();
+        FlakyTestTask failing = new FlakyTestTask(List.of(), 1, false, null,
+                RetryPolicy.exponential(1, Duration.ofMillis(10)), log);
+        FlakyTestTask hanging = new FlakyTestTask(List.of(), 1, true, Duration.ofMillis(50),
+                RetryPolicy.exponential(1, Duration.ZERO), log);
+        handle = executor.submitDynamic(List.of(failing, hanging), 2);
+        handle.await();
+        assertEquals(2, failing.attempts());
+        assertEquals(2, hanging.attempts());
+        assertEquals(2, handle.retries());
+        assertEquals(1, handle.timeouts());
+        assertEquals(2, handle.completed());
+    }
+
+    @Test
+    public void test33_addThroughHandle() throws Exception {
+        SumResultTestTask first = new SumResultTestTask(List.of(), 1);
+        SleepingTestTask sleeping = new SleepingTestTask(List.of(), 300);
+        DynamicExecutionHandle handle = executor.submitDynamic(List.of(first, sleeping), 2);
+        SumResultTestTask second = new SumResultTestTask(List.of(first), 2);
+        SumResultTestTask third = new SumResultTestTask(List.of(second, first), 3);
+        // Sleeping task keeps the run open, new tasks may depend on both finished and unfinished ones
+        EmptyTestTask last = new EmptyTestTask(List.of(sleeping, third));
+        handle.add(List.of(last, third, second));
+        try {
+            handle.add(List.of(second));
+            Assert.fail("Duplicate must be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Duplicate tasks are not allowed", e.getMessage());
+        }
+        try {
+            handle.add(List.of(new SumResultTestTask(List.of(new EmptyTestTask(List.of())), 0)));
+            Assert.fail("Unknown dependency must be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("not present"));
+        }
+        handle.await();
+        assertEquals(Integer.valueOf(1), handle.result(first));
+        assertEquals(Integer.valueOf(3), handle.result(second));
+        assertEquals(Integer.valueOf(7), handle.result(third));
+        assertEquals(5, handle.completed());
+        expectedException.expect(IllegalStateException.class);
+        handle.add(List.of(new EmptyTestTask(List.of(third))));
+    }
+
+    @Test
+    public void test34_resourceLimits() throws Exception {
+        final int count = 4;
+        final int millis = 100;
+        AtomicInteger disk = new AtomicInteger();
+        AtomicInteger maxDisk = new AtomicInteger();
+        AtomicInteger light = new AtomicInteger();
+        AtomicInteger maxLight = new AtomicInteger();
+        // Light tasks started while a disk-heavy one was running
+        AtomicInteger overlapping = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            tasks.add(new LimitedTestTask(List.of(), millis, Map.of("disk", 1L), disk, maxDisk));
+        }
+        for (int i = 0; i < count; i++) {
+            tasks.add(new LimitedTestTask(List.of(), millis, Map.of(), light, maxLight) {
+                @Override
+                protected void executionImpl() {
+                    if (disk.get() > 0) {
+                        overlapping.incrementAndGet();
+                    }
+                    super.executionImpl();
+                }
+            });
+        }
+        TaskGraph graph = TaskGraph.compile(tasks);
+        for (final ExecutionEngine engine : List.of(ExecutionEngine.SHARED_QUEUE, ExecutionEngine.WORK_STEALING)) {
+            try (TaskExecutor limited = TaskExecutor.builder().engine(engine).resource("disk", 1).build()) {
+                maxDisk.set(0);
+                overlapping.set(0);
+                resultCollector.clear();
+                limited.execute(graph, 2);
+                assertEquals(1, maxDisk.get());
+                assertEquals(2 * count, resultCollector.size());
+                // Tasks waiting for disk do not hold the second worker, so light tasks run meanwhile.
+                // If they held it, light tasks would start only next to the last disk-heavy task.
+                assertTrue(overlapping.get() >= count / 2);
+            }
+        }
+        try (TaskExecutor limited = TaskExecutor.builder().resource("disk", 1).build()) {
+            maxDisk.set(0);
+            ExecutionHandle handle = limited.submitDynamic(tasks.subList(0, count), 4);
+            handle.await();
+            assertEquals(1, maxDisk.get());
+        }
+    }
+
+    @Test
+    public void test35_weightedResources() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Task> generated = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            long memory = i == 0 ? 100 : 3;
+            List<Task> dependencies = i < 10 ? List.of() : List.of(generated.get(rng.nextInt(i)));
+            generated.add(new LimitedTestTask(dependencies, 5, Map.of("memory", memory, "unlimited", 7L),
+                    running, maxRunning));
+        }
+        tasks.addAll(generated);
+        try (TaskExecutor limited = TaskExecutor.builder().resource("memory", 4).threads(8).build()) {
+            limited.execute(tasks);
+        }
+        // Any two tasks need more than 4 units of memory, oversized task runs alone
+        assertEquals(1, maxRunning.get());
+        assertEquals(tasks.size(), resultCollector.size());
+    }
+
+    @Test
+    public void test36_coarsening() throws TaskExecutionException {
+        final int graphSize = 20000;
+        Map<Task, Integer> expected = new HashMap<>();
+        for (int i = 0; i < graphSize; i++) {
+            List<Task> dependencies = new ArrayList<>();
+            // Mostly chains and fan-outs, with some joins
+            int count = i == 0 ? 0 : rng.nextInt(10) == 0 ? 0 : rng.nextInt(10) == 0 ? 2 : 1;
+            for (int j = 0; j < count; j++) {
+                dependencies.add(tasks.get(Math.max(0, i - 1 - rng.nextInt(50))));
+            }
+            Task task;
+            if (dependencies.isEmpty()) {
+                int value = rng.nextInt(1000);
+                task = new ConstTestTask(dependencies, value);
+                expected.put(task, value);
+            } else {
+                task = new XorTestTask(dependencies);
+                int value = 0;
+                for (final Task dependency : dependencies) {
+                    value ^= expected.get(dependency);
+                }
+                expected.put(task, value);
+            }
+            tasks.add(task);
+        }
+        TaskGraph graph = TaskGraph.compile(tasks);
+        TaskGraph coarsened = graph.coarsen(64);
+        assertTrue(coarsened.size() * 10 < graph.size());
+        executor.execute(coarsened, 4);
+        assertEquals(expected, resultCollector);
+
+        // Result tasks are kept apart
+        List<SumResultTestTask> generated = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            generated.add(new SumResultTestTask(i == 0 ? List.of() : List.of(generated.get(i - 1)), 1));
+        }
+        ExecutionHandle handle = executor.submit(TaskGraph.compile(new ArrayList<>(generated)).coarsen(64), 4);
+        try {
+            handle.await();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        assertEquals(Integer.valueOf(100), handle.result(generated.get(99)));
+    }
+
+    @Test
+    public void test37_adaptiveThreads() throws Exception {
+        // Limits themselves are checked by WorkerTunerTest, these runs only have to use them
+        try (TaskExecutor adaptive = TaskExecutor.builder().adaptiveThreads(1, 64).build()) {
+            for (int i = 0; i < 64; i++) {
+                tasks.add(new BurningTestTask(List.of()));
+            }
+            ExecutionHandle handle = adaptive.submit(tasks);
+            handle.await();
+            assertEquals(tasks.size(), handle.completed());
+            int burning = handle.execution().parallelism();
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            List<Task> sleeping = new ArrayList<>();
+            for (int i = 0; i < 256; i++) {
+                sleeping.add(new LimitedTestTask(List.of(), 20, Map.of(), running, maxRunning));
+            }
+            handle = adaptive.submit(sleeping);
+            handle.await();
+            assertEquals(sleeping.size(), handle.completed());
+            int blocked = handle.execution().parallelism();
+            assertTrue(burning >= 1 && blocked <= 64);
+            // Sleeping tasks spend less of their time on CPU, whatever the load of the machine is
+            assertTrue(blocked >= burning);
+            assertTrue(maxRunning.get() <= 64);
+        }
+    }
+
+    @Test
+    public void test38_timeoutsAndRetries() throws Exception {
+        List<String> log = new ArrayList<>();
+        RetryPolicy twice = RetryPolicy.exponential(2, Duration.ofMillis(100));
+        // Succeeds on the third attempt, while the only worker keeps running other tasks during backoffs
+        FlakyTestTask flaky = new FlakyTestTask(List.of(), 2, false, null, twice, log);
+        tasks.add(flaky);
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new NamedTestTask("sleeping" + i, 10, List.of(), log));
+        }
+        EmptyTestTask dependent = new EmptyTestTask(List.of(flaky));
+        tasks.add(dependent);
+        ExecutionHandle handle = executor.submit(TaskGraph.compile(tasks), 1);
+        handle.await();
+        assertEquals(3, flaky.attempts());
+        assertEquals(2, handle.retries());
+        assertEquals(0, handle.timeouts());
+        assertEquals(tasks.size(), handle.completed());
+        // Backoff doubles
+        List<Long> attempts = flaky.attemptTimes();
+        assertTrue(attempts.get(1) - attempts.get(0) >= 100_000_000L);
+        assertTrue(attempts.get(2) - attempts.get(1) >= 200_000_000L);
+        // First attempt runs first. Worker does not wait for the backoff, and expired retry does not wait
+        // for other ready tasks.
+        assertEquals(flaky.id(), log.get(0));
+        int second = log.subList(1, log.size()).indexOf(flaky.id()) + 1;
+        assertTrue(second > 1);
+        assertTrue(second < log.indexOf("sleeping19"));
+
+        // Hangs longer than its timeout every time
+        FlakyTestTask hanging = new FlakyTestTask(List.of(), 3, true, Duration.ofMillis(100),
+                RetryPolicy.exponential(1, Duration.ofMillis(10)), log);
+        EmptyTestTask skipped = new EmptyTestTask(List.of(hanging));
+        handle = executor.submit(TaskGraph.compile(List.of(hanging, skipped)), 2);
+        try {
+            handle.await();
+            Assert.fail("Hanging task must time out");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getCause() instanceof TaskTimeoutException);
+            assertEquals(List.of(skipped.id()), e.getSkippedTaskIds());
+        }
+        assertEquals(2, hanging.attempts());
+        assertEquals(1, handle.retries());
+        assertEquals(2, handle.timeouts());
+        assertEquals(0, handle.completed());
+
+        // Coarsening keeps the retried task apart, so that its policy still applies
+        FlakyTestTask once = new FlakyTestTask(List.of(), 1, false, null, twice, log);
+        List<Task> chain = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            chain.add(i == 50 ? once : new EmptyTestTask(i == 0 ? List.of() : List.of(chain.get(i - 1))));
+        }
+        TaskGraph coarsened = TaskGraph.compile(chain).coarsen(64);
+        assertSame(once, coarsened.task(coarsened.indexOf(once)));
+        handle = executor.submit(coarsened, 2);
+        handle.await();
+        assertEquals(2, once.attempts());
+        assertEquals(1, handle.retries());
+    }
+
+    @Test
+    public void test39_parallelCompile() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            // Random DAG with wide levels and joins
+            for (int i = 0; i < 200_000; i++) {
+                List<Task> dependencies = new ArrayList<>();
+                for (int j = i == 0 ? 0 : rng.nextInt(3); j > 0; j--) {
+                    dependencies.add(tasks.get(rng.nextInt(i)));
+                }
+                tasks.add(i % 1000 == 0 ? new SumResultTestTask(dependencies, 1) : new EmptyTestTask(dependencies));
+            }
+            TaskGraph sequential = TaskGraph.compile(tasks);
+            assertSameGraph(sequential, TaskGraph.compile(tasks, pool, 4));
+            assertSameGraph(sequential, executor.compile(tasks));
+            // Chain has a level per task, fan-out has one huge level
+            List<Task> chain = new ArrayList<>();
+            List<Task> fanOut = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) {
+                chain.add(new EmptyTestTask(i == 0 ? List.of() : List.of(chain.get(i - 1))));
+                fanOut.add(new EmptyTestTask(i == 0 ? List.of() : List.of(fanOut.get(0))));
+            }
+            fanOut.add(new EmptyTestTask(new ArrayList<>(fanOut)));
+            assertSameGraph(TaskGraph.compile(chain), TaskGraph.compile(chain, pool, 4));
+            assertSameGraph(TaskGraph.compile(fanOut), TaskGraph.compile(fanOut, pool, 4));
+
+            // Same errors as the sequential compilation
+            List<Task> cyclic = new ArrayList<>(chain);
+            Task first = new ConstTestTask(new ArrayList<>(), 0);
+            Task second = new ConstTestTask(List.of(first), 0);
+            first.dependencies().add(second);
+            cyclic.addAll(List.of(first, second));
+            try {
+                TaskGraph.compile(cyclic, pool, 4);
+                Assert.fail("Cycle must be rejected");
+            } catch (TaskExecutionException e) {
+                assertTrue(e.getMessage().startsWith(ACYCLIC_ERROR + ": "));
+                assertTrue(e.getMessage().contains(first + " -> " + second));
+            }
+            List<Task> duplicates = new ArrayList<>(chain);
+            duplicates.add(chain.get(12345));
+            try {
+                TaskGraph.compile(duplicates, pool, 4);
+                Assert.fail("Duplicate must be rejected");
+            } catch (TaskExecutionException e) {
+                assertEquals("Duplicate tasks are not allowed", e.getMessage());
+            }
+            try {
+                TaskGraph.compile(chain.subList(1, chain.size()), pool, 4);
+                Assert.fail("Unknown dependency must be rejected");
+            } catch (TaskExecutionException e) {
+                assertTrue(e.getMessage().contains("not present"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void test40_targets() throws TaskExecutionException {
+        final int pipelines = 100;
+        final int stages = 200;
+        Task source = new ConstTestTask(List.of(), 0);
+        tasks.add(source);
+        List<Task> targets = new ArrayList<>();
+        Set<Task> needed = new HashSet<>(List.of(source));
+        for (int i = 0; i < pipelines; i++) {
+            Task previous = source;
+            for (int j = 0; j < stages; j++) {
+                previous = new ConstTestTask(List.of(previous), j);
+                tasks.add(previous);
+                if (i % 50 == 7) {
+                    needed.add(previous);
+                }
+            }
+            if (i % 50 == 7) {
+                targets.add(previous);
+            }
+        }
+        // Cycle and duplicate are never reached from the targets
+        Task first = new ConstTestTask(new ArrayList<>(), 0);
+        Task second = new ConstTestTask(List.of(first), 0);
+        first.dependencies().add(second);
+        tasks.addAll(List.of(first, second, second));
+
+        executor.execute(tasks, targets, 4);
+        assertEquals(needed, resultCollector.keySet());
+        assertEquals(needed.size(), TaskGraph.compile(tasks, targets).size());
+
+        tasks.subList(tasks.size() - 3, tasks.size()).clear();
+        executor.execute(tasks, 4);
+        assertEquals(tasks.size(), resultCollector.size());
+
+        try {
+            executor.execute(tasks, List.of(new ConstTestTask(List.of(source), 0)));
+            Assert.fail("Unknown target must be rejected");
+        } catch (TaskExecutionException e) {
+            assertTrue(e.getMessage().contains("not present"));
+        }
+    }
+
+    @Test
+    public void test41_closeDuringBackoff() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<String> log = new ArrayList<>();
+            FlakyTestTask flaky = new FlakyTestTask(List.of(), 1, false, null,
+                    RetryPolicy.exponential(1, Duration.ofMinutes(10)), log);
+            EmptyTestTask dependent = new EmptyTestTask(List.of(flaky));
+            ExecutionHandle handle;
+            try (TaskExecutor external = TaskExecutor.builder().pool(pool).build()) {
+                handle = external.submit(TaskGraph.compile(List.of(flaky, dependent)), 2);
+                while (flaky.attempts() == 0) {
+                    Thread.sleep(1);
+                }
+            }
+            // Run does not wait for the dropped retry
+            try {
+                handle.future().get(10, TimeUnit.SECONDS);
+                Assert.fail("Run must fail when its retry is dropped");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TaskExecutionException);
+                assertTrue(e.getCause().getCause().getMessage().contains("closed"));
+                assertEquals(List.of(dependent.id()), ((TaskExecutionException) e.getCause()).getSkippedTaskIds());
+            }
+            assertEquals(1, flaky.attempts());
+            assertEquals(0, handle.retries());
+        } finally {
+            pool.shutdown();
+        }
+    }
 
     private void stress(int iterations, int graphSize) throws TaskExecutionException {
         for (int i = 0; i < iterations; i++) {
@@ -316,6 +1037,21 @@ public class TaskExecutorTest {
         return new DAGTestPair(generatedTest, correct);
     }
 
+    // Constant tasks, each of which depends on some of the previous ones.
+    private List<Task> generateConstDAG(int size, double edgeProbability) {
+        List<Task> generated = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            List<Task> dependencies = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                if (rng.nextDouble() < edgeProbability) {
+                    dependencies.add(generated.get(j));
+                }
+            }
+            generated.add(new ConstTestTask(dependencies, i));
+        }
+        return generated;
+    }
+
     private void topologicalSort(int current, boolean[] visited, List<List<Integer>> graph, List<Integer> result) {
         visited[current] = true;
         for (final Integer edge : graph.get(current)) {
@@ -347,6 +1083,31 @@ public class TaskExecutorTest {
     }
 
 
+    private static void assertSameGraph(TaskGraph expected, TaskGraph actual) {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.roots(), actual.roots());
+        assertEquals(expected.producesResults(), actual.producesResults());
+        int[] position = new int[actual.size()];
+        int[] order = actual.order();
+        for (int i = 0; i < order.length; i++) {
+            position[order[i]] = i + 1;
+        }
+        for (int id = 0; id < expected.size(); id++) {
+            assertSame(expected.task(id), actual.task(id));
+            assertEquals(id, actual.indexOf(expected.task(id)));
+            assertEquals(expected.dependenciesFrom(id), actual.dependenciesFrom(id));
+            for (int i = actual.dependenciesFrom(id); i < actual.dependenciesTo(id); i++) {
+                assertEquals(expected.dependency(i), actual.dependency(i));
+            }
+            assertEquals(expected.successorsFrom(id), actual.successorsFrom(id));
+            assertEquals(expected.successorsTo(id), actual.successorsTo(id));
+            for (int i = actual.successorsFrom(id); i < actual.successorsTo(id); i++) {
+                assertEquals(expected.successor(i), actual.successor(i));
+                assertTrue(position[id] < position[actual.successor(i)]);
+            }
+        }
+    }
+
     private static class DAGTestPair {
         private final List<Task> test;
         private final Map<Task, Integer> answer;
@@ -364,5 +1125,4 @@ public class TaskExecutorTest {
             return test;
         }
     }
-
 }
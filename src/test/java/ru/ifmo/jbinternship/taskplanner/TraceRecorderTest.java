@@ -0,0 +1,145 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import org.junit.Test;
+import ru.ifmo.jbinternship.taskplanner.tasks.DivisionTestTask;
+import ru.ifmo.jbinternship.taskplanner.tasks.EmptyTestTask;
+import ru.ifmo.jbinternship.taskplanner.tasks.SleepingTestTask;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link TraceRecorder} and {@link ExecutionListener} events
+ */
+public class TraceRecorderTest {
+    @Test
+    public void testCriticalPath() throws TaskExecutionException {
+        Task a = new SleepingTestTask(Collections.emptyList(), 20);
+        Task b = new SleepingTestTask(Collections.singletonList(a), 40);
+        Task c = new SleepingTestTask(Collections.singletonList(a), 5);
+        Task d = new SleepingTestTask(Arrays.asList(b, c), 10);
+        TraceRecorder recorder = new TraceRecorder();
+        try (TaskExecutor executor = TaskExecutor.builder().threads(2).listener(recorder).build()) {
+            executor.execute(Arrays.asList(a, b, c, d));
+        }
+        TraceSummary summary = recorder.summary();
+        assertEquals(4, summary.tasks());
+        assertEquals(Arrays.asList(a.id(), b.id(), d.id()), summary.criticalPath());
+        assertTrue(summary.criticalPathTime() >= 70_000_000L);
+        assertTrue(summary.makespan() >= summary.criticalPathTime());
+        assertTrue(summary.totalQueueWait() >= 0);
+        assertFalse(summary.workerUtilisation().isEmpty());
+        double total = 0;
+        for (final double utilisation : summary.workerUtilisation().values()) {
+            assertTrue(utilisation > 0 && utilisation <= 1);
+            total += utilisation;
+        }
+        assertTrue(total <= 2);
+    }
+
+    @Test
+    public void testEvents() throws TaskExecutionException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            tasks.add(new EmptyTestTask(i == 0 ? Collections.emptyList()
+                    : Collections.singletonList(tasks.get(i / 2))));
+        }
+        Map<Task, Integer> events = new HashMap<>();
+        ExecutionListener listener = new ExecutionListener() {
+            @Override
+            public synchronized void taskReady(Task task, long nanoTime) {
+                assertEquals(null, events.put(task, 1));
+            }
+
+            @Override
+            public synchronized void taskStarted(Task task, long workerId, long nanoTime) {
+                assertEquals(Integer.valueOf(1), events.put(task, 2));
+            }
+
+            @Override
+            public synchronized void taskFinished(Task task, long workerId, long nanoTime, Throwable failure) {
+                assertNull(failure);
+                assertEquals(Integer.valueOf(2), events.put(task, 3));
+                for (final Task dependency : task.dependencies()) {
+                    assertEquals(Integer.valueOf(3), events.get(dependency));
+                }
+            }
+        };
+        for (final ExecutionEngine engine : ExecutionEngine.values()) {
+            events.clear();
+            try (TaskExecutor executor = TaskExecutor.builder().engine(engine).threads(4).listener(listener).build()) {
+                executor.execute(tasks);
+            }
+            assertEquals(tasks.size(), events.size());
+            assertTrue(events.values().stream().allMatch(state -> state == 3));
+        }
+    }
+
+    @Test
+    public void testChromeTrace() throws IOException {
+        Task root = new SleepingTestTask(Collections.emptyList(), 1);
+        Task failing = new DivisionTestTask(Collections.singletonList(root));
+        Task skipped = new EmptyTestTask(Collections.singletonList(failing));
+        TraceRecorder recorder = new TraceRecorder();
+        try (TaskExecutor executor = TaskExecutor.builder().listener(recorder).build()) {
+            executor.execute(Arrays.asList(root, failing, skipped));
+            fail("Division with one argument must fail");
+        } catch (TaskExecutionException e) {
+            // Expected
+        }
+        StringWriter out = new StringWriter();
+        recorder.writeChromeTrace(out);
+        String trace = out.toString();
+        assertTrue(trace.startsWith("{\"traceEvents\":["));
+        assertEquals(2, trace.split("\"ph\":\"X\"", -1).length - 1);
+        assertTrue(trace.contains("\"failed\":true"));
+        assertEquals(2, recorder.summary().tasks());
+        recorder.reset();
+        assertEquals(0, recorder.summary().tasks());
+    }
+
+    @Test
+    public void testResetDuringRun() {
+        Task early = new EmptyTestTask(Collections.emptyList());
+        Task late = new EmptyTestTask(Collections.emptyList());
+        TraceRecorder recorder = new TraceRecorder();
+        recorder.taskReady(early, 10);
+        recorder.taskStarted(early, 1, 20);
+        recorder.taskReady(late, 30);
+        recorder.reset();
+        recorder.taskFinished(early, 1, 40, null);
+        recorder.taskStarted(late, 1, 50);
+        recorder.taskFinished(late, 1, 60, null);
+        TraceSummary summary = recorder.summary();
+        assertEquals(1, summary.tasks());
+        assertEquals(10, summary.makespan());
+        assertEquals(0, summary.totalQueueWait());
+    }
+
+    @Test
+    public void testSeveralListeners() throws TaskExecutionException {
+        Task root = new EmptyTestTask(Collections.emptyList());
+        Task leaf = new EmptyTestTask(Collections.singletonList(root));
+        TraceRecorder first = new TraceRecorder();
+        TraceRecorder second = new TraceRecorder();
+        List<Task> finished = Collections.synchronizedList(new ArrayList<>());
+        ExecutionListener last = new ExecutionListener() {
+            @Override
+            public void taskFinished(Task task, long workerId, long nanoTime, Throwable failure) {
+                // Listeners added before see the event first
+                assertEquals(1, first.summary().tasks() - finished.size());
+                finished.add(task);
+            }
+        };
+        try (TaskExecutor executor = TaskExecutor.builder().threads(1)
+                .listener(first).listener(second).listener(last).build()) {
+            executor.execute(Arrays.asList(root, leaf));
+        }
+        assertEquals(2, first.summary().tasks());
+        assertEquals(2, second.summary().tasks());
+        assertEquals(Arrays.asList(root, leaf), finished);
+    }
+}
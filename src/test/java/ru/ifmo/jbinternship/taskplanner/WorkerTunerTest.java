@@ -0,0 +1,74 @@
+package ru.ifmo.jbinternship.taskplanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link WorkerTuner} class, with samples recorded directly
+ */
+public class WorkerTunerTest {
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+
+    @Test
+    public void testCpuBound() {
+        WorkerTuner tuner = new WorkerTuner(1, 4 * PROCESSORS);
+        for (int i = 0; i < 10; i++) {
+            tuner.record(1_000_000, 1_000_000);
+        }
+        assertEquals(PROCESSORS, tuner.limit());
+    }
+
+    @Test
+    public void testBlocked() {
+        WorkerTuner tuner = new WorkerTuner(1, 4 * PROCESSORS);
+        tuner.record(1_000_000, 0);
+        // Share of CPU time is never taken below one worker's share, so limit stays bounded
+        assertEquals(4 * PROCESSORS, tuner.limit());
+        // Half of the time on CPU allows twice as many workers as processors
+        tuner = new WorkerTuner(1, 4 * PROCESSORS);
+        tuner.record(1_000_000, 500_000);
+        assertEquals(2 * PROCESSORS, tuner.limit());
+    }
+
+    @Test
+    public void testSmoothing() {
+        WorkerTuner tuner = new WorkerTuner(1, 64 * PROCESSORS);
+        tuner.record(1_000_000, 1_000_000);
+        assertEquals(PROCESSORS, tuner.limit());
+        // One blocked task does not make the run look blocked, the limit follows gradually
+        tuner.record(1_000_000, 0);
+        assertEquals((int) Math.ceil(PROCESSORS / 0.75), tuner.limit());
+        for (int i = 0; i < 100; i++) {
+            tuner.record(1_000_000, 0);
+        }
+        assertEquals(64 * PROCESSORS, tuner.limit());
+    }
+
+    @Test
+    public void testBounds() {
+        WorkerTuner tuner = new WorkerTuner(PROCESSORS + 1, PROCESSORS + 2);
+        tuner.record(1_000_000, 1_000_000);
+        assertEquals(PROCESSORS + 1, tuner.limit());
+        tuner = new WorkerTuner(1, 2);
+        tuner.record(1_000_000, 0);
+        assertEquals(2, tuner.limit());
+        // Invalid samples are ignored
+        tuner.record(0, 0);
+        tuner.record(1_000_000, -1);
+        assertEquals(2, tuner.limit());
+    }
+
+    @Test
+    public void testSampling() {
+        WorkerTuner tuner = new WorkerTuner(1, 2);
+        if (WorkerTuner.cpuTime() >= 0) {
+            assertTrue(tuner.sample(0));
+        }
+        for (int executed = 1; executed < 8; executed++) {
+            assertFalse(tuner.sample(executed));
+        }
+    }
+}
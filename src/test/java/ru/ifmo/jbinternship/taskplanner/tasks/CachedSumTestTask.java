@@ -0,0 +1,49 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.CacheableTask;
+import ru.ifmo.jbinternship.taskplanner.Inputs;
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sums results of dependencies and own constant, counting actual computations.
+ */
+public class CachedSumTestTask implements CacheableTask<Integer> {
+    private final List<Task> dependencies;
+    private final AtomicInteger computations;
+    private int value;
+
+    public CachedSumTestTask(List<Task> dependencies, int value, AtomicInteger computations) {
+        this.dependencies = dependencies;
+        this.value = value;
+        this.computations = computations;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public String cacheKey() {
+        return "sum:" + value;
+    }
+
+    @Override
+    public Integer compute(Inputs inputs) {
+        computations.incrementAndGet();
+        int ans = value;
+        for (int i = 0; i < inputs.size(); i++) {
+            Integer input = inputs.get(i);
+            ans += input;
+        }
+        return ans;
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+}
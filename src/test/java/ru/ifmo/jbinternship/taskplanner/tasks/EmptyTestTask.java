@@ -0,0 +1,27 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Task without any work and without shared state, measures pure scheduling overhead.
+ */
+public class EmptyTestTask implements Task {
+    private final List<Task> dependencies;
+
+    public EmptyTestTask(List<Task> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    @Override
+    public void execute() {
+        // Nothing to do
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+}
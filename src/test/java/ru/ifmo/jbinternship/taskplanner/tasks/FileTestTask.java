@@ -0,0 +1,72 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Serializable task for other processes, which leaves a marker file when done. Checks that markers of
+ * dependencies exist. Crashing task kills its process the first time it runs.
+ */
+public class FileTestTask implements Task, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String directory;
+    private final String name;
+    private final List<Task> dependencies;
+    private final boolean crash;
+    private final boolean fail;
+
+    public FileTestTask(Path directory, String name, List<Task> dependencies, boolean crash, boolean fail) {
+        this.directory = directory.toString();
+        this.name = name;
+        this.dependencies = dependencies;
+        this.crash = crash;
+        this.fail = fail;
+    }
+
+    public Path marker() {
+        return Paths.get(directory, name);
+    }
+
+    @Override
+    public void execute() {
+        for (final Task dependency : dependencies) {
+            if (!Files.exists(((FileTestTask) dependency).marker())) {
+                throw new AssertionError("Task must run after its dependencies");
+            }
+        }
+        if (fail) {
+            throw new IllegalStateException("Failure of " + name);
+        }
+        try {
+            if (crash) {
+                Path crashed = Paths.get(directory, name + ".crashed");
+                if (!Files.exists(crashed)) {
+                    Files.createFile(crashed);
+                    Runtime.getRuntime().halt(1);
+                }
+            }
+            Files.createFile(marker());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public String id() {
+        return name;
+    }
+}
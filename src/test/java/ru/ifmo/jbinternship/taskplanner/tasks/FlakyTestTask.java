@@ -0,0 +1,82 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.RetryPolicy;
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Task, which fails or hangs a given number of times before it succeeds. Logs its id and start time of every
+ * attempt.
+ */
+public class FlakyTestTask implements Task {
+    private final List<Task> dependencies;
+    private final AtomicInteger failures;
+    private final boolean hang;
+    private final Duration timeout;
+    private final RetryPolicy retryPolicy;
+    private final List<String> log;
+    private final List<Long> attemptTimes = new ArrayList<>();
+
+    public FlakyTestTask(List<Task> dependencies, int failures, boolean hang, Duration timeout,
+                         RetryPolicy retryPolicy, List<String> log) {
+        this.dependencies = dependencies;
+        this.failures = new AtomicInteger(failures);
+        this.hang = hang;
+        this.timeout = timeout;
+        this.retryPolicy = retryPolicy;
+        this.log = log;
+    }
+
+    public synchronized int attempts() {
+        return attemptTimes.size();
+    }
+
+    /**
+     * Returns {@link System#nanoTime()} of every attempt.
+     */
+    public synchronized List<Long> attemptTimes() {
+        return new ArrayList<>(attemptTimes);
+    }
+
+    @Override
+    public void execute() {
+        synchronized (this) {
+            attemptTimes.add(System.nanoTime());
+        }
+        synchronized (log) {
+            log.add(id());
+        }
+        if (failures.getAndDecrement() <= 0) {
+            return;
+        }
+        if (!hang) {
+            throw new IllegalStateException("Transient failure");
+        }
+        try {
+            Thread.sleep(60_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hanging", e);
+        }
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public Duration timeout() {
+        return timeout;
+    }
+
+    @Override
+    public RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+}
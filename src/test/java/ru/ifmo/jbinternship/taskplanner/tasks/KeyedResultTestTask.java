@@ -0,0 +1,46 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.Inputs;
+import ru.ifmo.jbinternship.taskplanner.ResultTask;
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Result task, which is equal to any other one with the same key. Adds own constant to the result
+ * of the dependency, looked up by an equal task.
+ */
+public class KeyedResultTestTask implements ResultTask<Integer> {
+    private final String key;
+    private final List<Task> dependencies;
+    private final int value;
+    private final KeyedResultTestTask input;
+
+    public KeyedResultTestTask(String key, List<Task> dependencies, int value, KeyedResultTestTask input) {
+        this.key = key;
+        this.dependencies = dependencies;
+        this.value = value;
+        this.input = input;
+    }
+
+    @Override
+    public Integer compute(Inputs inputs) {
+        return input == null ? value : value + inputs.get(input);
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof KeyedResultTestTask && key.equals(((KeyedResultTestTask) other).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sleeping task, which declares resources and tracks how many tasks of its group run at once.
+ */
+public class LimitedTestTask extends SleepingTestTask {
+    private final Map<String, Long> resources;
+    private final AtomicInteger running;
+    private final AtomicInteger maxRunning;
+
+    public LimitedTestTask(List<Task> dependencies, int millis, Map<String, Long> resources,
+                           AtomicInteger running, AtomicInteger maxRunning) {
+        super(dependencies, millis);
+        this.resources = resources;
+        this.running = running;
+        this.maxRunning = maxRunning;
+    }
+
+    @Override
+    public Map<String, Long> resources() {
+        return resources;
+    }
+
+    @Override
+    protected void executionImpl() {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            super.executionImpl();
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+}
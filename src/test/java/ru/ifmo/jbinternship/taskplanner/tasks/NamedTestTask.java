@@ -0,0 +1,46 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sleeping task with a stable id, which logs its id when it starts.
+ */
+public class NamedTestTask implements Task {
+    private final String name;
+    private final int millis;
+    private final List<Task> dependencies;
+    private final List<String> log;
+
+    public NamedTestTask(String name, int millis, List<Task> dependencies, List<String> log) {
+        this.name = name;
+        this.millis = millis;
+        this.dependencies = dependencies;
+        this.log = log;
+    }
+
+    @Override
+    public void execute() {
+        synchronized (log) {
+            log.add(name);
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sleeping", e);
+        }
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public String id() {
+        return name;
+    }
+}
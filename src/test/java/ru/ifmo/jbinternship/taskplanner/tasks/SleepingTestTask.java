@@ -0,0 +1,30 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.List;
+
+public class SleepingTestTask extends TestTask {
+    private final int millis;
+
+    public SleepingTestTask(List<Task> dependencies, int millis) {
+        super(dependencies);
+        this.millis = millis;
+        this.value = millis;
+    }
+
+    @Override
+    public long cost() {
+        return millis;
+    }
+
+    @Override
+    protected void executionImpl() {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sleeping", e);
+        }
+    }
+}
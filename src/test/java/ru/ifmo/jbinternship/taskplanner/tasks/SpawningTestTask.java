@@ -0,0 +1,51 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.DynamicTask;
+import ru.ifmo.jbinternship.taskplanner.Task;
+import ru.ifmo.jbinternship.taskplanner.TaskContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static ru.ifmo.jbinternship.taskplanner.TaskExecutorTest.resultCollector;
+
+/**
+ * Discovers work while running: adds given number of child spawners, until depth is exhausted.
+ * Children of the first one also depend on its last child, so new tasks depend on unfinished ones too.
+ */
+public class SpawningTestTask implements DynamicTask {
+    private final List<Task> dependencies;
+    private final int depth;
+    private final int fanOut;
+
+    public SpawningTestTask(List<Task> dependencies, int depth, int fanOut) {
+        this.dependencies = dependencies;
+        this.depth = depth;
+        this.fanOut = fanOut;
+    }
+
+    @Override
+    public void execute(TaskContext context) {
+        for (final Task dependency : dependencies) {
+            if (!resultCollector.containsKey(dependency)) {
+                throw new AssertionError("Task must run after its dependencies");
+            }
+        }
+        resultCollector.put(this, depth);
+        if (depth == 0) {
+            return;
+        }
+        List<Task> children = new ArrayList<>();
+        for (int i = 0; i < fanOut; i++) {
+            children.add(new SpawningTestTask(List.of(this), depth - 1, fanOut));
+        }
+        children.add(new SpawningTestTask(List.of(this, children.get(fanOut - 1)), depth - 1, fanOut));
+        context.add(children);
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+}
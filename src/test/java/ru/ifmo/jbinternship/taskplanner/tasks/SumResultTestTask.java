@@ -0,0 +1,45 @@
+package ru.ifmo.jbinternship.taskplanner.tasks;
+
+import ru.ifmo.jbinternship.taskplanner.Inputs;
+import ru.ifmo.jbinternship.taskplanner.ResultTask;
+import ru.ifmo.jbinternship.taskplanner.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sums results of dependencies and own constant, without any shared storage.
+ */
+public class SumResultTestTask implements ResultTask<Integer> {
+    private final List<Task> dependencies;
+    private int value;
+
+    public SumResultTestTask(List<Task> dependencies, int value) {
+        this.dependencies = dependencies;
+        this.value = value;
+    }
+
+    @Override
+    public Integer compute(Inputs inputs) {
+        int ans = value;
+        for (int i = 0; i < inputs.size(); i++) {
+            Integer input = inputs.get(i);
+            ans += input;
+        }
+        return ans;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public Object fingerprint() {
+        return value;
+    }
+
+    @Override
+    public Collection<Task> dependencies() {
+        return dependencies;
+    }
+}